@@ -0,0 +1,113 @@
+package com.comp301.a09akari.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reproducible boards for the benchmarks. A board is built by scattering walls, lighting the
+ * corridors with a random legal lamp placement and then numbering some of the walls with the
+ * lamps next to them, so every board has at least one solution.
+ */
+final class Boards {
+  private static final double WALL_DENSITY = 0.2;
+  private static final double CLUE_FRACTION = 0.5;
+  private static final int[][] DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+  private Boards() {}
+
+  /** Returns a solvable size x size board, the same one every time for the same seed */
+  static int[][] generate(int size, long seed) {
+    Random random = new Random(seed);
+    int[][] board = new int[size][size];
+    for (int[] row : board) {
+      Arrays.fill(row, 6);
+    }
+    for (int r = 0; r < size; r++) {
+      for (int c = 0; c < size; c++) {
+        if (random.nextDouble() < WALL_DENSITY) board[r][c] = 5;
+      }
+    }
+
+    boolean[][] lit = new boolean[size][size];
+    boolean[][] lamps = new boolean[size][size];
+    for (int cell : shuffledCorridors(board, random)) {
+      int r = cell / size, c = cell % size;
+      if (lit[r][c]) continue;
+      lamps[r][c] = true;
+      lit[r][c] = true;
+      for (int[] d : DIRECTIONS) {
+        for (int rr = r + d[0], cc = c + d[1]; inside(size, rr, cc) && board[rr][cc] == 6; ) {
+          lit[rr][cc] = true;
+          rr += d[0];
+          cc += d[1];
+        }
+      }
+    }
+
+    for (int r = 0; r < size; r++) {
+      for (int c = 0; c < size; c++) {
+        if (board[r][c] != 5 || random.nextDouble() >= CLUE_FRACTION) continue;
+        int clue = 0;
+        for (int[] d : DIRECTIONS) {
+          if (inside(size, r + d[0], c + d[1]) && lamps[r + d[0]][c + d[1]]) clue++;
+        }
+        board[r][c] = clue;
+      }
+    }
+    return board;
+  }
+
+  /**
+   * Returns the flat indices of a random fraction of the board's corridor cells, at least one and
+   * at most all of them, in random order
+   */
+  static int[] pickCorridors(int[][] board, double fraction, long seed) {
+    List<Integer> corridors = shuffledCorridors(board, new Random(seed));
+    int count = Math.max(1, Math.min(corridors.size(), (int) (fraction * corridors.size())));
+    return corridors.subList(0, count).stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /** Returns the board as a game ID in the notation PuzzleImporter reads */
+  static String toGameId(int[][] board) {
+    StringBuilder id = new StringBuilder();
+    id.append(board[0].length).append('x').append(board.length).append(':');
+    int run = 0;
+    for (int[] row : board) {
+      for (int value : row) {
+        if (value == 6) {
+          if (++run < 26) continue;
+        }
+        if (run > 0) {
+          id.append((char) ('a' + run - 1));
+          run = 0;
+        }
+        if (value == 5) {
+          id.append('B');
+        } else if (value != 6) {
+          id.append(value);
+        }
+      }
+    }
+    if (run > 0) id.append((char) ('a' + run - 1));
+    return id.toString();
+  }
+
+  private static List<Integer> shuffledCorridors(int[][] board, Random random) {
+    int width = board[0].length;
+    List<Integer> corridors = new ArrayList<>();
+    for (int r = 0; r < board.length; r++) {
+      for (int c = 0; c < width; c++) {
+        if (board[r][c] == 6) corridors.add(r * width + c);
+      }
+    }
+    Collections.shuffle(corridors, random);
+    return corridors;
+  }
+
+  private static boolean inside(int size, int r, int c) {
+    return r >= 0 && r < size && c >= 0 && c < size;
+  }
+}
@@ -0,0 +1,90 @@
+package com.comp301.a09akari.benchmarks;
+
+import com.comp301.a09akari.model.ConcurrentModelImpl;
+import com.comp301.a09akari.model.PuzzleImpl;
+import com.comp301.a09akari.model.PuzzleLibraryImpl;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of one ConcurrentModelImpl shared by every benchmark thread. Run the read benchmark
+ * with increasing thread counts, e.g. "-t 1", "-t 2", "-t 4", to see how reads scale with cores;
+ * the mixed group pairs three readers with a writer toggling lamps on the same puzzle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentModelBenchmark {
+  @Param({"50", "200"})
+  private int size;
+
+  private ConcurrentModelImpl model;
+  private int[] corridors;
+
+  /** Each thread's position in the cycle of corridor cells */
+  @State(Scope.Thread)
+  public static class Cursor {
+    private int next;
+
+    int nextCell(int[] corridors) {
+      int cell = corridors[next];
+      next = next + 1 == corridors.length ? 0 : next + 1;
+      return cell;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    int[][] board = Boards.generate(size, size);
+    PuzzleLibraryImpl library = new PuzzleLibraryImpl();
+    library.addPuzzle(new PuzzleImpl(board));
+    model = new ConcurrentModelImpl(library);
+    corridors = Boards.pickCorridors(board, 1, 0);
+    for (int cell : Boards.pickCorridors(board, 0.1, 1)) {
+      model.addLamp(cell / size, cell % size);
+    }
+  }
+
+  @Benchmark
+  public boolean isLit(Cursor cursor) {
+    int cell = cursor.nextCell(corridors);
+    return model.isLit(cell / size, cell % size);
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(3)
+  public boolean mixedRead(Cursor cursor) {
+    int cell = cursor.nextCell(corridors);
+    return model.isLit(cell / size, cell % size);
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public void mixedWrite(Cursor cursor) {
+    int cell = cursor.nextCell(corridors);
+    int r = cell / size, c = cell % size;
+    if (model.isLamp(r, c)) {
+      model.removeLamp(r, c);
+    } else {
+      model.addLamp(r, c);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package com.comp301.a09akari.benchmarks;
+
+import com.comp301.a09akari.model.Model;
+import com.comp301.a09akari.model.ModelImpl;
+import com.comp301.a09akari.model.PuzzleImpl;
+import com.comp301.a09akari.model.PuzzleLibraryImpl;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-call cost of the Model operations a view makes on every click and repaint, on boards from
+ * 7x7 to 200x200 holding lamps on a fraction of their corridors from sparse (1%) to saturated
+ * (every corridor, so nearly every lamp is illegal). Each call works on the next cell of a fixed
+ * cycle, and the lamp operations put back what they change, so the board stays as set up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+  @Param({"7", "25", "50", "100", "200"})
+  private int size;
+
+  @Param({"0.01", "0.1", "0.5", "1.0"})
+  private double lampDensity;
+
+  private Model model;
+  private int[] corridors;
+  private boolean[] hasLamp;
+  private int[] lamps;
+  private int nextCorridor;
+  private int nextLamp;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    int[][] board = Boards.generate(size, size);
+    PuzzleLibraryImpl library = new PuzzleLibraryImpl();
+    library.addPuzzle(new PuzzleImpl(board));
+    model = new ModelImpl(library);
+
+    corridors = Boards.pickCorridors(board, 1, 0);
+    lamps = Boards.pickCorridors(board, lampDensity, 1);
+    hasLamp = new boolean[size * size];
+    for (int cell : lamps) {
+      model.addLamp(cell / size, cell % size);
+      hasLamp[cell] = true;
+    }
+  }
+
+  /** Places and removes a lamp, or removes and replaces one if the cell already has a lamp */
+  @Benchmark
+  public void addAndRemoveLamp() {
+    int cell = corridors[nextCorridor];
+    nextCorridor = nextCorridor + 1 == corridors.length ? 0 : nextCorridor + 1;
+    int r = cell / size, c = cell % size;
+    if (hasLamp[cell]) {
+      model.removeLamp(r, c);
+      model.addLamp(r, c);
+    } else {
+      model.addLamp(r, c);
+      model.removeLamp(r, c);
+    }
+  }
+
+  @Benchmark
+  public boolean isLit() {
+    int cell = corridors[nextCorridor];
+    nextCorridor = nextCorridor + 1 == corridors.length ? 0 : nextCorridor + 1;
+    return model.isLit(cell / size, cell % size);
+  }
+
+  @Benchmark
+  public boolean isLampIllegal() {
+    int cell = lamps[nextLamp];
+    nextLamp = nextLamp + 1 == lamps.length ? 0 : nextLamp + 1;
+    return model.isLampIllegal(cell / size, cell % size);
+  }
+
+  @Benchmark
+  public boolean isSolved() {
+    return model.isSolved();
+  }
+}
@@ -0,0 +1,99 @@
+package com.comp301.a09akari.benchmarks;
+
+import com.comp301.a09akari.model.CellType;
+import com.comp301.a09akari.model.MappedPuzzleLibrary;
+import com.comp301.a09akari.model.ModelImpl;
+import com.comp301.a09akari.model.Puzzle;
+import com.comp301.a09akari.model.PuzzleFormat;
+import com.comp301.a09akari.model.PuzzleImpl;
+import com.comp301.a09akari.model.PuzzleImporter;
+import com.comp301.a09akari.model.PuzzleLibraryImpl;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of reading a puzzle's cells and of getting a puzzle ready to play, from an int[][] board, a
+ * game ID or the packed binary format, on boards from 7x7 to 200x200.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PuzzleBenchmark {
+  @Param({"7", "25", "50", "100", "200"})
+  private int size;
+
+  private int[][] board;
+  private Puzzle puzzle;
+  private String gameId;
+  private Path packedFile;
+  private MappedPuzzleLibrary mappedLibrary;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    board = Boards.generate(size, size);
+    puzzle = new PuzzleImpl(board);
+    gameId = Boards.toGameId(board);
+    packedFile = Files.createTempFile("akari-benchmark", ".akr");
+    PuzzleFormat.write(List.of(puzzle), packedFile);
+    mappedLibrary = new MappedPuzzleLibrary(packedFile);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(packedFile);
+  }
+
+  /** Reads the type of every cell once, as a full repaint does */
+  @Benchmark
+  public int getCellTypeOfEveryCell() {
+    int corridors = 0;
+    for (int r = 0; r < size; r++) {
+      for (int c = 0; c < size; c++) {
+        if (puzzle.getCellType(r, c) == CellType.CORRIDOR) corridors++;
+      }
+    }
+    return corridors;
+  }
+
+  @Benchmark
+  public Puzzle loadFromBoard() {
+    return new PuzzleImpl(board);
+  }
+
+  @Benchmark
+  public Puzzle loadFromGameId() {
+    return PuzzleImporter.parse(gameId);
+  }
+
+  @Benchmark
+  public Puzzle loadFromPackedFile() {
+    return mappedLibrary.getPuzzle(0);
+  }
+
+  /** Opens the puzzle in a new model, including the lamp state built on its first visit */
+  @Benchmark
+  public boolean openInModel() {
+    PuzzleLibraryImpl library = new PuzzleLibraryImpl();
+    library.addPuzzle(puzzle);
+    return new ModelImpl(library).isSolved();
+  }
+}
@@ -0,0 +1,58 @@
+package com.comp301.a09akari.benchmarks;
+
+import com.comp301.a09akari.model.BacktrackingSolver;
+import com.comp301.a09akari.model.Puzzle;
+import com.comp301.a09akari.model.PuzzleImpl;
+import com.comp301.a09akari.model.SatSolver;
+import com.comp301.a09akari.model.Solution;
+import com.comp301.a09akari.model.Solver;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to solve a generated puzzle and to decide whether its solution is unique. Boards stop at
+ * 50x50, beyond which a single solve takes too long to sample usefully.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+  @Param({"7", "25", "50"})
+  private int size;
+
+  @Param({"backtracking", "sat"})
+  private String solverName;
+
+  private Solver solver;
+  private Puzzle puzzle;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    solver = solverName.equals("sat") ? new SatSolver() : new BacktrackingSolver();
+    puzzle = new PuzzleImpl(Boards.generate(size, size));
+  }
+
+  @Benchmark
+  public Solution solve() {
+    return solver.solve(puzzle);
+  }
+
+  @Benchmark
+  public int countSolutionsUpToTwo() {
+    return solver.countSolutions(puzzle, 2);
+  }
+}
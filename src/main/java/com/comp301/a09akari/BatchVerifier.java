@@ -0,0 +1,415 @@
+package com.comp301.a09akari;
+
+import com.comp301.a09akari.model.CachingPuzzleLibrary;
+import com.comp301.a09akari.model.CellType;
+import com.comp301.a09akari.model.MappedPuzzleLibrary;
+import com.comp301.a09akari.model.Model;
+import com.comp301.a09akari.model.ModelImpl;
+import com.comp301.a09akari.model.Puzzle;
+import com.comp301.a09akari.model.PuzzleFormat;
+import com.comp301.a09akari.model.PuzzleImporter;
+import com.comp301.a09akari.model.PuzzleLibrary;
+import com.comp301.a09akari.model.PuzzleLibraryImpl;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks candidate solutions against puzzles without starting the user interface. Candidates are
+ * read one per line: a puzzle, given either as its index in the library or as a game ID, followed
+ * by the lamps as row,column pairs separated by spaces. Blank lines and lines starting with '#' are
+ * skipped. Each candidate is played on an empty board through the Model API, and the report gets
+ * one tab-separated line per candidate with its line number, "solved", "unsolved" or "error", and
+ * then either the lamps that can see another lamp, the corridors left dark and the clues left
+ * unsatisfied, or what was wrong with the line.
+ *
+ * <p>Like PuzzleImporter, the input is read a batch at a time, and each batch is checked in
+ * parallel while the next one is read, so memory use does not depend on the size of the input.
+ * Results are reported in input order.
+ */
+public final class BatchVerifier {
+  private static final int BATCH_SIZE = 8192;
+  /** Puzzles a worker's model may visit before it is replaced, as it keeps state for each */
+  private static final int PUZZLES_PER_MODEL = 256;
+  private static final String HEADER = "line\tstatus\tillegal\tunlit\tunsatisfied";
+
+  /** The outcome of checking one candidate */
+  public enum Status {
+    SOLVED,
+    UNSOLVED,
+    ERROR,
+  }
+
+  /** One line of input and, once checked, its line of the report */
+  private static final class Candidate {
+    private final long line;
+    private final String text;
+    private Status status;
+    private String result;
+
+    Candidate(long line, String text) {
+      this.line = line;
+      this.text = text;
+    }
+  }
+
+  /**
+   * One worker thread's model, reused from candidate to candidate, and the lamps the last candidate
+   * on each puzzle left on it. Moving a board from one candidate to the next only touches the lamps
+   * the two disagree on, and candidates for the same puzzle are mostly alike
+   */
+  private static final class Worker {
+    private Model model;
+    private final Map<Integer, int[]> lampsByPuzzle = new HashMap<>();
+    private final BitSet wanted = new BitSet();
+  }
+
+  private final PuzzleLibrary puzzleLibrary;
+  private final ForkJoinPool pool;
+  private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+  private final long[] counts = new long[Status.values().length];
+
+  /**
+   * Creates a verifier for candidates naming puzzles in the library, or giving their own game IDs,
+   * checked on the pool. The library must be safe to read from the pool's threads. Throws an
+   * IllegalArgumentException if either argument is null
+   */
+  public BatchVerifier(PuzzleLibrary library, ForkJoinPool pool) {
+    if (library == null || pool == null) {
+      throw new IllegalArgumentException("Library and pool cannot be null");
+    }
+    this.puzzleLibrary = library;
+    this.pool = pool;
+  }
+
+  /**
+   * Checks every candidate read from the input, writing the report as it goes, and returns how
+   * many were checked. Neither stream is closed, but the report is flushed
+   */
+  public long verify(Reader in, Writer report) throws IOException {
+    if (in == null || report == null) {
+      throw new IllegalArgumentException("Input and report cannot be null");
+    }
+    BufferedReader lines =
+        in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+    report.write(HEADER);
+    report.write('\n');
+    List<Candidate> batch = new ArrayList<>(BATCH_SIZE);
+    CompletableFuture<List<Candidate>> inFlight = null;
+    long count = 0;
+    long lineNumber = 0;
+    for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+      lineNumber++;
+      String text = line.trim();
+      if (text.isEmpty() || text.startsWith("#")) continue;
+      batch.add(new Candidate(lineNumber, text));
+      if (batch.size() == BATCH_SIZE) {
+        count += emit(inFlight, report);
+        inFlight = checkAsync(batch);
+        batch = new ArrayList<>(BATCH_SIZE);
+      }
+    }
+    count += emit(inFlight, report);
+    count += emit(checkAsync(batch), report);
+    report.flush();
+    return count;
+  }
+
+  /** Returns how many candidates checked so far ended with the given status */
+  public long getCount(Status status) {
+    return counts[status.ordinal()];
+  }
+
+  private CompletableFuture<List<Candidate>> checkAsync(List<Candidate> batch) {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          batch.parallelStream().forEach(this::check);
+          return batch;
+        },
+        pool);
+  }
+
+  private int emit(CompletableFuture<List<Candidate>> checked, Writer report) throws IOException {
+    if (checked == null) return 0;
+    List<Candidate> candidates = checked.join();
+    for (Candidate candidate : candidates) {
+      counts[candidate.status.ordinal()]++;
+      report.write(candidate.result);
+      report.write('\n');
+    }
+    return candidates.size();
+  }
+
+  private void check(Candidate candidate) {
+    StringBuilder result = new StringBuilder(64).append(candidate.line).append('\t');
+    try {
+      Model model = play(candidate.text);
+      if (model.isSolved()) {
+        candidate.status = Status.SOLVED;
+        result.append("solved\t\t\t");
+      } else {
+        candidate.status = Status.UNSOLVED;
+        result.append("unsolved\t");
+        describe(model, result);
+      }
+    } catch (IllegalArgumentException | IndexOutOfBoundsException | IllegalStateException e) {
+      // IllegalStateException comes from a corrupt record in a mapped puzzle file
+      candidate.status = Status.ERROR;
+      result.setLength(0);
+      result.append(candidate.line).append("\terror\t").append(e.getMessage());
+    }
+    candidate.result = result.toString();
+  }
+
+  /** Places the candidate's lamps on an otherwise empty board of its puzzle */
+  private Model play(String text) {
+    int end = tokenEnd(text, 0);
+    String id = text.substring(0, end);
+    if (id.indexOf(':') >= 0) {
+      PuzzleLibrary own = new PuzzleLibraryImpl();
+      own.addPuzzle(PuzzleImporter.parse(id));
+      Model model = new ModelImpl(own);
+      int[] cells = parseLamps(text, end, model.getActivePuzzle());
+      int width = model.getActivePuzzle().getWidth();
+      for (int cell : cells) {
+        model.addLamp(cell / width, cell % width);
+      }
+      return model;
+    }
+
+    int index;
+    try {
+      index = Integer.parseInt(id);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Not a puzzle index or game ID: " + id);
+    }
+    if (index < 0 || index >= puzzleLibrary.size()) {
+      throw new IllegalArgumentException("No puzzle " + index + " in the library");
+    }
+    // Every lamp is checked before the board is touched, so a bad line leaves it as it was
+    int[] cells = parseLamps(text, end, puzzleLibrary.getPuzzle(index));
+    int width = puzzleLibrary.getPuzzle(index).getWidth();
+
+    Worker worker = workers.get();
+    Map<Integer, int[]> placed = worker.lampsByPuzzle;
+    if (worker.model == null
+        || (placed.size() >= PUZZLES_PER_MODEL && !placed.containsKey(index))) {
+      worker.model = new ModelImpl(puzzleLibrary);
+      placed.clear();
+    }
+    Model model = worker.model;
+    BitSet wanted = worker.wanted;
+    wanted.clear();
+    for (int cell : cells) {
+      wanted.set(cell);
+    }
+    model.beginBatch();
+    try {
+      if (model.getActivePuzzleIndex() != index) model.setActivePuzzleIndex(index);
+      int[] previous = placed.get(index);
+      if (previous != null) {
+        for (int cell : previous) {
+          if (!wanted.get(cell)) model.removeLamp(cell / width, cell % width);
+        }
+      }
+      for (int cell : cells) {
+        model.addLamp(cell / width, cell % width);
+      }
+      placed.put(index, cells);
+    } finally {
+      model.commitBatch();
+    }
+    return model;
+  }
+
+  /**
+   * Parses the row,column pairs after the puzzle token into cell indexes, throwing an
+   * IllegalArgumentException for any pair that is malformed or not a corridor of the puzzle
+   */
+  private static int[] parseLamps(String text, int from, Puzzle puzzle) {
+    int[] cells = new int[16];
+    int count = 0;
+    for (int start = skipSpace(text, from); start < text.length(); ) {
+      int end = tokenEnd(text, start);
+      int comma = text.indexOf(',', start);
+      int r;
+      int c;
+      try {
+        if (comma < 0 || comma >= end) throw new NumberFormatException();
+        r = Integer.parseInt(text, start, comma, 10);
+        c = Integer.parseInt(text, comma + 1, end, 10);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Not a row,column pair: " + text.substring(start, end));
+      }
+      if (r < 0
+          || r >= puzzle.getHeight()
+          || c < 0
+          || c >= puzzle.getWidth()
+          || puzzle.getCellType(r, c) != CellType.CORRIDOR) {
+        throw new IllegalArgumentException("Cannot place a lamp at " + text.substring(start, end));
+      }
+      if (count == cells.length) cells = Arrays.copyOf(cells, count * 2);
+      cells[count++] = r * puzzle.getWidth() + c;
+      start = skipSpace(text, end);
+    }
+    return Arrays.copyOf(cells, count);
+  }
+
+  private static int tokenEnd(String text, int from) {
+    int at = from;
+    while (at < text.length() && !Character.isWhitespace(text.charAt(at))) {
+      at++;
+    }
+    return at;
+  }
+
+  private static int skipSpace(String text, int from) {
+    int at = from;
+    while (at < text.length() && Character.isWhitespace(text.charAt(at))) {
+      at++;
+    }
+    return at;
+  }
+
+  /**
+   * Appends the illegal lamps, unlit corridors and unsatisfied clues of an unsolved board, using
+   * the model's counters to skip the kinds of cell there are none of
+   */
+  private static void describe(Model model, StringBuilder result) {
+    Puzzle puzzle = model.getActivePuzzle();
+    StringBuilder illegal = new StringBuilder();
+    StringBuilder unlit = new StringBuilder();
+    StringBuilder unsatisfied = new StringBuilder();
+    boolean anyIllegal = model.getIllegalLampCount() > 0;
+    boolean anyUnlit = model.getUnlitCount() > 0;
+    boolean anyUnsatisfied = model.getUnsatisfiedClueCount() > 0;
+    for (int r = 0; r < puzzle.getHeight(); r++) {
+      for (int c = 0; c < puzzle.getWidth(); c++) {
+        CellType type = puzzle.getCellType(r, c);
+        if (type == CellType.CORRIDOR) {
+          if (anyIllegal && model.isLamp(r, c) && model.isLampIllegal(r, c)) append(illegal, r, c);
+          if (anyUnlit && !model.isLit(r, c)) append(unlit, r, c);
+        } else if (anyUnsatisfied && type == CellType.CLUE && !model.isClueSatisfied(r, c)) {
+          append(unsatisfied, r, c);
+        }
+      }
+    }
+    result.append(illegal).append('\t').append(unlit).append('\t').append(unsatisfied);
+  }
+
+  private static void append(StringBuilder cells, int r, int c) {
+    if (cells.length() > 0) cells.append(' ');
+    cells.append(r).append(',').append(c);
+  }
+
+  /**
+   * Runs the verifier from the command line:
+   *
+   * <pre>verify [--puzzles FILE] [--threads N] [--output FILE] [CANDIDATES]</pre>
+   *
+   * <p>The puzzle file may be in PuzzleFormat or a text pack read by PuzzleImporter. Candidates
+   * are read from standard input if no file is given, and the report goes to standard output
+   * unless an output file is. A summary is printed to standard error. Exits with 0 if every
+   * candidate was solved, 1 if any was not and 2 if the arguments or files could not be used.
+   */
+  public static void main(String[] args) {
+    Path puzzles = null;
+    Path output = null;
+    Path candidates = null;
+    int threads = Runtime.getRuntime().availableProcessors();
+    try {
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "--puzzles":
+            puzzles = Paths.get(args[++i]);
+            break;
+          case "--output":
+            output = Paths.get(args[++i]);
+            break;
+          case "--threads":
+            threads = Integer.parseInt(args[++i]);
+            break;
+          default:
+            if (candidates != null || args[i].startsWith("--")) {
+              throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            candidates = Paths.get(args[i]);
+        }
+      }
+      if (threads < 1) throw new IllegalArgumentException("Thread count must be positive");
+    } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+      System.err.println(e.getMessage() == null ? "Missing argument value" : e.getMessage());
+      System.err.println(
+          "Usage: verify [--puzzles FILE] [--threads N] [--output FILE] [CANDIDATES]");
+      System.exit(2);
+      return;
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    int status;
+    try (Reader in =
+            candidates == null
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(candidates, StandardCharsets.UTF_8);
+        Writer report =
+            output == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+      BatchVerifier verifier = new BatchVerifier(loadLibrary(puzzles), pool);
+      long start = System.nanoTime();
+      long count = verifier.verify(in, report);
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.err.printf(
+          "Checked %d candidates in %.2f s (%.0f per second): %d solved, %d unsolved, %d errors%n",
+          count,
+          seconds,
+          count / Math.max(seconds, 1e-9),
+          verifier.getCount(Status.SOLVED),
+          verifier.getCount(Status.UNSOLVED),
+          verifier.getCount(Status.ERROR));
+      status = verifier.getCount(Status.SOLVED) == count ? 0 : 1;
+    } catch (IOException | UncheckedIOException e) {
+      System.err.println(e.getMessage());
+      status = 2;
+    } catch (CompletionException e) {
+      // Whatever a worker could not report as an error line, such as a failure reading puzzles
+      Throwable cause = e.getCause() == null ? e : e.getCause();
+      System.err.println("Verification failed: " + cause);
+      status = 2;
+    } finally {
+      pool.shutdown();
+    }
+    System.exit(status);
+  }
+
+  private static PuzzleLibrary loadLibrary(Path file) throws IOException {
+    if (file == null) return new PuzzleLibraryImpl();
+    if (PuzzleFormat.isPuzzleFile(file)) {
+      // Decoded on demand, keeping the puzzles in use so their segment indexes are built once
+      return new CachingPuzzleLibrary(new MappedPuzzleLibrary(file), 4096);
+    }
+    PuzzleLibrary library = new PuzzleLibraryImpl();
+    try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      new PuzzleImporter().importTo(in, library);
+    }
+    return library;
+  }
+}
@@ -1,10 +1,16 @@
 package com.comp301.a09akari;
 
 import com.comp301.a09akari.view.AppLauncher;
+import java.util.Arrays;
 import javafx.application.Application;
 
 public class Main {
   public static void main(String[] args) {
+    // "verify" checks candidate solutions from files without starting the user interface
+    if (args.length > 0 && args[0].equals("verify")) {
+      BatchVerifier.main(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
     Application.launch(AppLauncher.class);
   }
 }
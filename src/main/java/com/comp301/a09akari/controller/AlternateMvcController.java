@@ -1,6 +1,8 @@
 package com.comp301.a09akari.controller;
 
+import com.comp301.a09akari.model.Hint;
 import com.comp301.a09akari.model.Puzzle;
+import java.util.concurrent.CompletableFuture;
 
 public interface AlternateMvcController {
   /** Handles the click action to go to the next puzzle */
@@ -15,6 +17,12 @@ public interface AlternateMvcController {
   /** Handles the click action to reset the currently active puzzle */
   void clickResetPuzzle();
 
+  /** Handles the click action to undo the last lamp change to the active puzzle */
+  void clickUndo();
+
+  /** Handles the click action to redo the last undone lamp change to the active puzzle */
+  void clickRedo();
+
   /** Handles the click event on the cell at row r, column c */
   void clickCell(int r, int c);
 
@@ -30,6 +38,9 @@ public interface AlternateMvcController {
   /** Returns true if the active puzzle is solved */
   boolean isSolved();
 
+  /** Returns a hint for the active puzzle, completing with null if there is nothing to suggest */
+  CompletableFuture<Hint> getHint();
+
   /** Getter method for the active puzzle */
   Puzzle getActivePuzzle();
 }
@@ -1,10 +1,33 @@
 package com.comp301.a09akari.controller;
 
+import com.comp301.a09akari.model.Hint;
+import com.comp301.a09akari.model.LampSnapshot;
 import com.comp301.a09akari.model.Model;
 import com.comp301.a09akari.model.Puzzle;
+import com.comp301.a09akari.model.PuzzlePool;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class ControllerImpl implements AlternateMvcController {
+  /**
+   * Lamp snapshots to step back and forward through on one puzzle. Snapshots share structure, so
+   * an unlimited history costs memory in proportion to the edits made
+   */
+  private static final class History {
+    private final Deque<LampSnapshot> undo = new ArrayDeque<>();
+    private final Deque<LampSnapshot> redo = new ArrayDeque<>();
+  }
+
+  /** Generated puzzles added to the library before "Random" only revisits puzzles there */
+  private static final int MAX_GENERATED = 50;
+
   private final Model model;
+  private final PuzzlePool pool;
+  private final Map<Integer, History> historiesByPuzzle = new HashMap<>();
+  private int generatedCount;
 
   // Constructor to initialize the ControllerImpl with the Model
   public ControllerImpl(Model model) {
@@ -12,6 +35,21 @@ public class ControllerImpl implements AlternateMvcController {
       throw new IllegalArgumentException("Model cannot be null");
     }
     this.model = model;
+    this.pool = null;
+  }
+
+  /**
+   * Creates a controller whose random puzzle button plays freshly generated puzzles from the pool,
+   * adding each one to the model's library. After MAX_GENERATED of them the pool is shut down, so
+   * the library and the model's per-puzzle state stop growing. Throws an IllegalArgumentException
+   * if either argument is null
+   */
+  public ControllerImpl(Model model, PuzzlePool pool) {
+    if (model == null || pool == null) {
+      throw new IllegalArgumentException("Model and pool cannot be null");
+    }
+    this.model = model;
+    this.pool = pool;
   }
 
   @Override
@@ -34,21 +72,51 @@ public class ControllerImpl implements AlternateMvcController {
 
   @Override
   public void clickRandPuzzle() {
-    // Move to a random puzzle
+    // Play a freshly generated puzzle if one is ready; never wait for the generator
+    Puzzle generated = pool == null || generatedCount == MAX_GENERATED ? null : pool.poll();
+    if (generated != null) {
+      model.setActivePuzzleIndex(model.addPuzzle(generated));
+      if (++generatedCount == MAX_GENERATED) pool.shutdown();
+      return;
+    }
+
+    // Otherwise move to a random puzzle already in the library
     int randomIndex = (int) (Math.random() * model.getPuzzleLibrarySize());
     model.setActivePuzzleIndex(randomIndex);
   }
 
   @Override
   public void clickResetPuzzle() {
-    // Reset the active puzzle by removing all placed lamps
+    // Reset the active puzzle by removing all placed lamps, unless there are none to remove
+    if (model.getLampSnapshot().getLampCount() == 0) return;
+    recordUndo();
     model.resetPuzzle();
   }
 
+  @Override
+  public void clickUndo() {
+    // Step back to the lamps before the last change, keeping the current ones for redo
+    History history = history();
+    if (history.undo.isEmpty()) return;
+    history.redo.push(model.getLampSnapshot());
+    model.restoreLampSnapshot(history.undo.pop());
+  }
+
+  @Override
+  public void clickRedo() {
+    // Step forward to the lamps the last undo replaced
+    History history = history();
+    if (history.redo.isEmpty()) return;
+    history.undo.push(model.getLampSnapshot());
+    model.restoreLampSnapshot(history.redo.pop());
+  }
+
   @Override
   public void clickCell(int r, int c) {
     // Add or remove a lamp from the cell depending on its current state
-    if (model.isLamp(r, c)) {
+    boolean lamp = model.isLamp(r, c);
+    recordUndo();
+    if (lamp) {
       model.removeLamp(r, c);
     } else {
       model.addLamp(r, c);
@@ -79,9 +147,26 @@ public class ControllerImpl implements AlternateMvcController {
     return model.isSolved();
   }
 
+  @Override
+  public CompletableFuture<Hint> getHint() {
+    // Ask the model for a hint; it may still be solving the puzzle in the background
+    return model.getHint();
+  }
+
   @Override
   public Puzzle getActivePuzzle() {
     // Get the active puzzle from the model
     return model.getActivePuzzle();
   }
+
+  private History history() {
+    return historiesByPuzzle.computeIfAbsent(model.getActivePuzzleIndex(), i -> new History());
+  }
+
+  /** Remembers the current lamps before a change; a new change makes the redo steps unreachable */
+  private void recordUndo() {
+    History history = history();
+    history.undo.push(model.getLampSnapshot());
+    history.redo.clear();
+  }
 }
@@ -0,0 +1,26 @@
+package com.comp301.a09akari.model;
+
+/**
+ * Single-threaded solver combining constraint propagation from clues and dark cells with
+ * depth-first backtracking (see DepthFirstSearch)
+ */
+public class BacktrackingSolver implements Solver {
+  @Override
+  public Solution solve(Puzzle puzzle) {
+    return search(puzzle, 1).getFirst();
+  }
+
+  @Override
+  public int countSolutions(Puzzle puzzle, int limit) {
+    return search(puzzle, limit).getCount();
+  }
+
+  private SolutionCollector search(Puzzle puzzle, int limit) {
+    if (puzzle == null) {
+      throw new IllegalArgumentException("Puzzle cannot be null");
+    }
+    SolutionCollector collector = new SolutionCollector(limit);
+    new DepthFirstSearch(collector).explore(new SearchState(puzzle));
+    return collector;
+  }
+}
@@ -0,0 +1,335 @@
+package com.comp301.a09akari.model;
+
+import java.util.Arrays;
+
+/**
+ * Lamps placed on one puzzle together with the state derived from them. Lit counters, segment lamp
+ * counts, clue neighbour counts and the solved-state counters are all updated incrementally as
+ * lamps are added and removed, so every query is answered in constant time. Cells are addressed by
+ * the flat index used by SegmentIndex, and callers are responsible for validating them.
+ *
+ * <p>Every cell whose lit state, clue satisfaction or lamp legality flips is logged along the way,
+ * and takeChange() hands the log over as a ModelChange.
+ *
+ * <p>The LampSnapshot is brought up to date only when asked for, from the cells toggled since, so
+ * boards nobody takes snapshots of pay one bit per toggle instead of a trie path copy.
+ */
+final class BoardState {
+  private final SegmentIndex segments;
+  private final int corridorCount;
+  private final int initialUnsatisfiedClueCount;
+
+  private final LampBitSet lamps;
+  private LampSnapshot snapshot;
+  /** Cells toggled since the snapshot was last brought up to date, if snapshotStale is set */
+  private final LampBitSet snapshotDirty;
+  private boolean snapshotStale;
+  private final int[] litCounts;
+  private final int[] clueLamps;
+  private final int[] rowSegmentLamps;
+  private final int[] colSegmentLamps;
+  private int unlitCount;
+  private int unsatisfiedClueCount;
+  private int illegalLampCount;
+  private int version;
+
+  private final CellLog lampFlips;
+  private final CellLog litFlips;
+  private final CellLog clueFlips;
+  private final CellLog legalityFlips;
+  private final LampBitSet wasIllegal;
+
+  BoardState(Puzzle puzzle) {
+    this.segments = SegmentIndex.of(puzzle);
+    int cells = segments.getCellCount();
+
+    int corridors = 0;
+    int unsatisfied = 0;
+    for (int cell = 0; cell < cells; cell++) {
+      if (segments.isCorridor(cell)) {
+        corridors++;
+      } else if (segments.getClue(cell) > 0) {
+        unsatisfied++;
+      }
+    }
+    this.corridorCount = corridors;
+    this.initialUnsatisfiedClueCount = unsatisfied;
+
+    this.lamps = new LampBitSet(cells);
+    this.snapshot = LampSnapshot.empty(segments.getWidth(), segments.getHeight());
+    this.snapshotDirty = new LampBitSet(cells);
+    this.litCounts = new int[cells];
+    this.clueLamps = new int[cells];
+    this.rowSegmentLamps = new int[segments.getRowSegmentCount()];
+    this.colSegmentLamps = new int[segments.getColSegmentCount()];
+    this.unlitCount = corridorCount;
+    this.unsatisfiedClueCount = initialUnsatisfiedClueCount;
+
+    this.lampFlips = new CellLog();
+    this.litFlips = new CellLog();
+    this.clueFlips = new CellLog();
+    this.legalityFlips = new CellLog();
+    this.wasIllegal = new LampBitSet(cells);
+  }
+
+  SegmentIndex getSegments() {
+    return segments;
+  }
+
+  boolean isLamp(int cell) {
+    return lamps.get(cell);
+  }
+
+  /** Places a lamp on the corridor cell, returning false if one was already there */
+  boolean addLamp(int cell) {
+    if (isLamp(cell)) return false;
+    update(cell, 1);
+    return true;
+  }
+
+  /** Removes the lamp from the corridor cell, returning false if there was none */
+  boolean removeLamp(int cell) {
+    if (!isLamp(cell)) return false;
+    update(cell, -1);
+    return true;
+  }
+
+  /** Returns the number of lamps currently placed */
+  int getLampCount() {
+    return lamps.cardinality();
+  }
+
+  boolean isLit(int cell) {
+    return litCounts[cell] > 0;
+  }
+
+  boolean isLampIllegal(int cell) {
+    return rowSegmentLamps[segments.getRowSegment(cell)] > 1
+        || colSegmentLamps[segments.getColSegment(cell)] > 1;
+  }
+
+  boolean isClueSatisfied(int cell) {
+    return clueLamps[cell] == segments.getClue(cell);
+  }
+
+  /** Returns the value of the clue at the cell, or -1 if the cell is not a CLUE */
+  int getClue(int cell) {
+    return segments.getClue(cell);
+  }
+
+  /** Returns the number of lamps next to the cell; only tracked for CLUE cells */
+  int getAdjacentLampCount(int cell) {
+    return clueLamps[cell];
+  }
+
+  /** Returns a counter that changes every time a lamp is added or removed */
+  int getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns an immutable snapshot of the placed lamps, first applying the cells toggled since the
+   * last call to the previous snapshot, so consecutive snapshots share all they can
+   */
+  LampSnapshot getSnapshot() {
+    if (snapshotStale) {
+      for (int cell = snapshotDirty.nextSetBit(0);
+          cell >= 0;
+          cell = snapshotDirty.nextSetBit(cell + 1)) {
+        snapshot = lamps.get(cell) ? snapshot.with(cell) : snapshot.without(cell);
+      }
+      snapshotDirty.clearAll();
+      snapshotStale = false;
+    }
+    return snapshot;
+  }
+
+  /** Returns the snapshot if it is up to date, or null if getSnapshot() would have to update it */
+  LampSnapshot getSnapshotIfCurrent() {
+    return snapshotStale ? null : snapshot;
+  }
+
+  /** Returns the number of corridor cells not lit by any lamp */
+  int getUnlitCount() {
+    return unlitCount;
+  }
+
+  /** Returns the number of clues whose adjacent lamp count differs from their value */
+  int getUnsatisfiedClueCount() {
+    return unsatisfiedClueCount;
+  }
+
+  /** Returns the number of lamps that can see another lamp */
+  int getIllegalLampCount() {
+    return illegalLampCount;
+  }
+
+  boolean isSolved() {
+    return unlitCount == 0 && unsatisfiedClueCount == 0 && illegalLampCount == 0;
+  }
+
+  /**
+   * Returns the cells logged since the last call as a change of the given type, and starts a new
+   * log. Several lamp changes may be taken as one, which is how batches are reported
+   */
+  ModelChange takeChange(ModelChange.Type type, int row, int col) {
+    return ModelChange.of(
+        type,
+        row,
+        col,
+        lampFlips.take(),
+        litFlips.take(),
+        clueFlips.take(),
+        legalityFlips.take());
+  }
+
+  /** Forgets the cells logged since the last takeChange() */
+  void discardChanges() {
+    lampFlips.take();
+    litFlips.take();
+    clueFlips.take();
+    legalityFlips.take();
+  }
+
+  /** Removes every lamp, restoring the state this board was constructed with */
+  void clear() {
+    for (int cell = lamps.nextSetBit(0); cell >= 0; cell = lamps.nextSetBit(cell + 1)) {
+      lampFlips.add(cell);
+      if (isLampIllegal(cell)) legalityFlips.add(cell);
+    }
+    for (int cell = 0; cell < segments.getCellCount(); cell++) {
+      if (litCounts[cell] > 0) litFlips.add(cell);
+      int clue = segments.getClue(cell);
+      if (clue >= 0 && isClueSatisfied(cell) != (clue == 0)) clueFlips.add(cell);
+    }
+    lamps.clearAll();
+    snapshot = LampSnapshot.empty(segments.getWidth(), segments.getHeight());
+    snapshotDirty.clearAll();
+    snapshotStale = false;
+    Arrays.fill(litCounts, 0);
+    Arrays.fill(clueLamps, 0);
+    Arrays.fill(rowSegmentLamps, 0);
+    Arrays.fill(colSegmentLamps, 0);
+    unlitCount = corridorCount;
+    unsatisfiedClueCount = initialUnsatisfiedClueCount;
+    illegalLampCount = 0;
+    version++;
+  }
+
+  /**
+   * Applies a lamp being added (delta 1) or removed (delta -1) at the cell. Only lamps sharing one
+   * of its two segments can change legality, so those are recounted before and after the change
+   */
+  private void update(int lamp, int delta) {
+    int width = segments.getWidth();
+    int rowSegment = segments.getRowSegment(lamp);
+    int colSegment = segments.getColSegment(lamp);
+    illegalLampCount -= countIllegalLamps(rowSegment, colSegment, lamp, true);
+
+    if (delta > 0) {
+      lamps.set(lamp);
+    } else {
+      lamps.clear(lamp);
+    }
+    snapshotDirty.set(lamp);
+    snapshotStale = true;
+    rowSegmentLamps[rowSegment] += delta;
+    colSegmentLamps[colSegment] += delta;
+    int rowEnd = segments.getRowSegmentEnd(rowSegment);
+    for (int cell = segments.getRowSegmentStart(rowSegment); cell < rowEnd; cell++) {
+      updateLitCount(cell, delta);
+    }
+    int colEnd = segments.getColSegmentEnd(colSegment);
+    for (int cell = segments.getColSegmentStart(colSegment); cell < colEnd; cell += width) {
+      if (cell != lamp) {
+        updateLitCount(cell, delta);
+      }
+    }
+
+    int row = lamp / width, col = lamp % width;
+    if (row > 0) updateClue(lamp - width, delta);
+    if (row < segments.getHeight() - 1) updateClue(lamp + width, delta);
+    if (col > 0) updateClue(lamp - 1, delta);
+    if (col < width - 1) updateClue(lamp + 1, delta);
+
+    illegalLampCount += countIllegalLamps(rowSegment, colSegment, lamp, false);
+    // A removed lamp is not visited after the change, but no longer counts as illegal
+    if (wasIllegal.clear(lamp)) legalityFlips.add(lamp);
+    lampFlips.add(lamp);
+    version++;
+  }
+
+  private void updateLitCount(int cell, int delta) {
+    int before = litCounts[cell];
+    litCounts[cell] = before + delta;
+    if (before == 0) {
+      unlitCount--;
+      litFlips.add(cell);
+    } else if (before + delta == 0) {
+      unlitCount++;
+      litFlips.add(cell);
+    }
+  }
+
+  private void updateClue(int cell, int delta) {
+    if (segments.getClue(cell) < 0) return;
+    boolean wasSatisfied = isClueSatisfied(cell);
+    clueLamps[cell] += delta;
+    boolean satisfied = isClueSatisfied(cell);
+    if (wasSatisfied != satisfied) {
+      unsatisfiedClueCount += satisfied ? -1 : 1;
+      clueFlips.add(cell);
+    }
+  }
+
+  /**
+   * Counts the illegal lamps in the union of the given row and column segments. Before a change
+   * the illegal ones are marked in wasIllegal; after it, every lamp whose legality no longer
+   * matches its mark is logged as a flip
+   */
+  private int countIllegalLamps(int rowSegment, int colSegment, int crossing, boolean before) {
+    if (rowSegmentLamps[rowSegment] == 0 && colSegmentLamps[colSegment] == 0) return 0;
+    int count = 0;
+    int rowEnd = segments.getRowSegmentEnd(rowSegment);
+    for (int cell = segments.getRowSegmentStart(rowSegment); cell < rowEnd; cell++) {
+      if (isLamp(cell)) count += checkLegality(cell, before);
+    }
+    int colEnd = segments.getColSegmentEnd(colSegment);
+    for (int cell = segments.getColSegmentStart(colSegment);
+        cell < colEnd;
+        cell += segments.getWidth()) {
+      if (cell != crossing && isLamp(cell)) count += checkLegality(cell, before);
+    }
+    return count;
+  }
+
+  /** Returns 1 if the lamp is illegal and 0 otherwise, marking or logging it as described above */
+  private int checkLegality(int lamp, boolean before) {
+    boolean illegal = isLampIllegal(lamp);
+    if (before) {
+      if (illegal) wasIllegal.set(lamp);
+    } else if (illegal != wasIllegal.clear(lamp)) {
+      legalityFlips.add(lamp);
+    }
+    return illegal ? 1 : 0;
+  }
+
+  /** Growable list of cells logged since the last take() */
+  private static final class CellLog {
+    private int[] cells = new int[16];
+    private int size;
+
+    void add(int cell) {
+      if (size == cells.length) {
+        cells = Arrays.copyOf(cells, size * 2);
+      }
+      cells[size++] = cell;
+    }
+
+    int[] take() {
+      int[] taken = Arrays.copyOf(cells, size);
+      size = 0;
+      return taken;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package com.comp301.a09akari.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PuzzleLibrary over a PuzzleSource which keeps only the most recently used puzzles in memory.
+ * Puzzles are loaded from the source on first use and evicted, least recently used first, once
+ * more than the given number are cached. Puzzles added with addPuzzle() come after those of the
+ * source and are always kept. Safe for use from several threads.
+ */
+public class CachingPuzzleLibrary implements PuzzleLibrary {
+  private final PuzzleSource source;
+  private final Map<Integer, Puzzle> cache;
+  private final List<Puzzle> added;
+
+  /**
+   * Creates a library caching at most capacity puzzles from the source. Throws an
+   * IllegalArgumentException if the source is null or the capacity is not positive
+   */
+  public CachingPuzzleLibrary(PuzzleSource source, int capacity) {
+    if (source == null) {
+      throw new IllegalArgumentException("Source cannot be null");
+    }
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    this.source = source;
+    this.added = new ArrayList<>();
+    this.cache =
+        new LinkedHashMap<Integer, Puzzle>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Integer, Puzzle> eldest) {
+            return size() > capacity;
+          }
+        };
+  }
+
+  @Override
+  public synchronized void addPuzzle(Puzzle puzzle) {
+    if (puzzle == null) {
+      throw new IllegalArgumentException("Cannot add null Puzzle to the library");
+    }
+    added.add(puzzle);
+  }
+
+  @Override
+  public synchronized Puzzle getPuzzle(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Invalid puzzle index");
+    }
+    if (index >= source.size()) {
+      return added.get(index - source.size());
+    }
+    Puzzle puzzle = cache.get(index);
+    if (puzzle == null) {
+      puzzle = source.load(index);
+      cache.put(index, puzzle);
+    }
+    return puzzle;
+  }
+
+  @Override
+  public synchronized int size() {
+    return source.size() + added.size();
+  }
+
+  /** Returns the number of puzzles from the source currently held in memory */
+  public synchronized int getCachedCount() {
+    return cache.size();
+  }
+}
@@ -0,0 +1,361 @@
+package com.comp301.a09akari.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Small conflict-driven clause learning SAT solver: two watched literals for unit propagation,
+ * first-UIP clause learning with non-chronological backjumping, VSIDS variable activities, saved
+ * phases and Luby restarts. Clauses may be added between calls to solve(), which is how callers
+ * enumerate solutions with blocking clauses. Variables and literals use the DIMACS convention on
+ * the outside; internally literal 2v is variable v and 2v + 1 its negation, with v from 0.
+ */
+final class CdclSolver {
+  private static final int RESTART_UNIT = 100;
+  private static final double ACTIVITY_DECAY = 0.95;
+
+  private final int variableCount;
+  private final List<int[]> clauses;
+  private final int[][] watches;
+  private final int[] watchCounts;
+
+  private final byte[] values;
+  private final int[] levels;
+  private final int[] reasons;
+  private final boolean[] phases;
+  private final boolean[] seen;
+  private final int[] trail;
+  private int trailSize;
+  private int propagated;
+  private final int[] levelStarts;
+  private int decisionLevel;
+
+  private final double[] activity;
+  private double activityIncrement;
+  private final int[] heap;
+  private final int[] heapPositions;
+  private int heapSize;
+
+  private boolean unsatisfiable;
+  private boolean[] model;
+
+  CdclSolver(int variableCount) {
+    this.variableCount = variableCount;
+    this.clauses = new ArrayList<>();
+    this.watches = new int[2 * variableCount][];
+    this.watchCounts = new int[2 * variableCount];
+    for (int i = 0; i < watches.length; i++) {
+      watches[i] = new int[4];
+    }
+    this.values = new byte[variableCount];
+    this.levels = new int[variableCount];
+    this.reasons = new int[variableCount];
+    this.phases = new boolean[variableCount];
+    this.seen = new boolean[variableCount];
+    this.trail = new int[variableCount];
+    this.levelStarts = new int[variableCount + 1];
+    this.activity = new double[variableCount];
+    this.activityIncrement = 1;
+    this.heap = new int[variableCount];
+    this.heapPositions = new int[variableCount];
+    Arrays.fill(heapPositions, -1);
+    for (int variable = 0; variable < variableCount; variable++) {
+      heapInsert(variable);
+    }
+  }
+
+  /** Adds a clause of DIMACS literals; the empty clause makes the formula unsatisfiable */
+  void addClause(int... dimacsLiterals) {
+    backtrack(0);
+    if (unsatisfiable) return;
+    int[] clause = new int[dimacsLiterals.length];
+    int size = 0;
+    for (int dimacs : dimacsLiterals) {
+      int literal = dimacs > 0 ? (dimacs - 1) << 1 : ((-dimacs - 1) << 1) | 1;
+      int value = valueOf(literal);
+      if (value > 0) return;
+      if (value < 0) continue;
+      boolean duplicate = false;
+      for (int i = 0; i < size; i++) {
+        if (clause[i] == (literal ^ 1)) return;
+        if (clause[i] == literal) duplicate = true;
+      }
+      if (!duplicate) clause[size++] = literal;
+    }
+
+    if (size == 0) {
+      unsatisfiable = true;
+    } else if (size == 1) {
+      assign(clause[0], -1);
+      if (propagate() >= 0) unsatisfiable = true;
+    } else {
+      attach(Arrays.copyOf(clause, size));
+    }
+  }
+
+  /** Returns true if the clauses added so far are satisfiable, leaving the assignment readable */
+  boolean solve() {
+    model = null;
+    if (unsatisfiable) return false;
+    backtrack(0);
+    int restart = 1;
+    int conflictsUntilRestart = RESTART_UNIT * luby(restart);
+    while (true) {
+      int conflict = propagate();
+      if (conflict >= 0) {
+        if (decisionLevel == 0) {
+          unsatisfiable = true;
+          return false;
+        }
+        learn(conflict);
+        activityIncrement /= ACTIVITY_DECAY;
+        if (--conflictsUntilRestart == 0) {
+          backtrack(0);
+          conflictsUntilRestart = RESTART_UNIT * luby(++restart);
+        }
+      } else {
+        int variable = nextDecisionVariable();
+        if (variable < 0) {
+          model = new boolean[variableCount + 1];
+          for (int v = 0; v < variableCount; v++) {
+            model[v + 1] = values[v] > 0;
+          }
+          return true;
+        }
+        levelStarts[++decisionLevel] = trailSize;
+        assign((variable << 1) | (phases[variable] ? 0 : 1), -1);
+      }
+    }
+  }
+
+  /**
+   * Returns the satisfying assignment found by the last successful solve(), indexed by DIMACS
+   * variable, or null if the last solve() failed
+   */
+  boolean[] getModel() {
+    return model;
+  }
+
+  private int valueOf(int literal) {
+    int value = values[literal >> 1];
+    return (literal & 1) == 0 ? value : -value;
+  }
+
+  private void assign(int literal, int reason) {
+    int variable = literal >> 1;
+    values[variable] = (byte) ((literal & 1) == 0 ? 1 : -1);
+    levels[variable] = decisionLevel;
+    reasons[variable] = reason;
+    trail[trailSize++] = literal;
+  }
+
+  private void attach(int[] clause) {
+    int index = clauses.size();
+    clauses.add(clause);
+    watch(clause[0], index);
+    watch(clause[1], index);
+  }
+
+  private void watch(int literal, int clause) {
+    if (watchCounts[literal] == watches[literal].length) {
+      watches[literal] = Arrays.copyOf(watches[literal], watchCounts[literal] * 2);
+    }
+    watches[literal][watchCounts[literal]++] = clause;
+  }
+
+  /** Propagates every assignment on the trail, returning a conflicting clause or -1 */
+  private int propagate() {
+    while (propagated < trailSize) {
+      int falseLiteral = trail[propagated++] ^ 1;
+      int[] watching = watches[falseLiteral];
+      int count = watchCounts[falseLiteral];
+      int kept = 0;
+      for (int i = 0; i < count; i++) {
+        int index = watching[i];
+        int[] clause = clauses.get(index);
+        if (clause[0] == falseLiteral) {
+          clause[0] = clause[1];
+          clause[1] = falseLiteral;
+        }
+        if (valueOf(clause[0]) > 0) {
+          watching[kept++] = index;
+          continue;
+        }
+        boolean moved = false;
+        for (int k = 2; k < clause.length; k++) {
+          if (valueOf(clause[k]) >= 0) {
+            clause[1] = clause[k];
+            clause[k] = falseLiteral;
+            watch(clause[1], index);
+            moved = true;
+            break;
+          }
+        }
+        if (moved) continue;
+
+        watching[kept++] = index;
+        if (valueOf(clause[0]) < 0) {
+          while (++i < count) {
+            watching[kept++] = watching[i];
+          }
+          watchCounts[falseLiteral] = kept;
+          propagated = trailSize;
+          return index;
+        }
+        assign(clause[0], index);
+      }
+      watchCounts[falseLiteral] = kept;
+    }
+    return -1;
+  }
+
+  /** Derives the first-UIP clause from a conflict, backjumps and asserts it */
+  private void learn(int conflict) {
+    List<Integer> learnt = new ArrayList<>();
+    learnt.add(-1);
+    int pending = 0;
+    int literal = -1;
+    int index = trailSize - 1;
+    int[] clause = clauses.get(conflict);
+    do {
+      for (int k = literal < 0 ? 0 : 1; k < clause.length; k++) {
+        int variable = clause[k] >> 1;
+        if (seen[variable] || levels[variable] == 0) continue;
+        seen[variable] = true;
+        bump(variable);
+        if (levels[variable] == decisionLevel) {
+          pending++;
+        } else {
+          learnt.add(clause[k]);
+        }
+      }
+      while (!seen[trail[index] >> 1]) {
+        index--;
+      }
+      literal = trail[index--];
+      seen[literal >> 1] = false;
+      pending--;
+      if (pending > 0) clause = clauses.get(reasons[literal >> 1]);
+    } while (pending > 0);
+
+    int[] result = new int[learnt.size()];
+    result[0] = literal ^ 1;
+    int deepest = 1;
+    for (int i = 1; i < result.length; i++) {
+      result[i] = learnt.get(i);
+      seen[result[i] >> 1] = false;
+      if (levels[result[i] >> 1] > levels[result[deepest] >> 1]) deepest = i;
+    }
+    int backjumpLevel = 0;
+    if (result.length > 1) {
+      // The second watch must be the literal that becomes unassigned last
+      int swapped = result[1];
+      result[1] = result[deepest];
+      result[deepest] = swapped;
+      backjumpLevel = levels[result[1] >> 1];
+    }
+
+    backtrack(backjumpLevel);
+    if (result.length == 1) {
+      assign(result[0], -1);
+    } else {
+      attach(result);
+      assign(result[0], clauses.size() - 1);
+    }
+  }
+
+  private void backtrack(int level) {
+    if (decisionLevel <= level) return;
+    for (int i = trailSize - 1; i >= levelStarts[level + 1]; i--) {
+      int variable = trail[i] >> 1;
+      phases[variable] = values[variable] > 0;
+      values[variable] = 0;
+      if (heapPositions[variable] < 0) heapInsert(variable);
+    }
+    trailSize = levelStarts[level + 1];
+    propagated = trailSize;
+    decisionLevel = level;
+  }
+
+  private int nextDecisionVariable() {
+    while (heapSize > 0) {
+      int variable = heapRemoveMax();
+      if (values[variable] == 0) return variable;
+    }
+    return -1;
+  }
+
+  private void bump(int variable) {
+    activity[variable] += activityIncrement;
+    if (activity[variable] > 1e100) {
+      for (int v = 0; v < variableCount; v++) {
+        activity[v] *= 1e-100;
+      }
+      activityIncrement *= 1e-100;
+    }
+    if (heapPositions[variable] >= 0) heapSiftUp(heapPositions[variable]);
+  }
+
+  private static int luby(int i) {
+    int size = 1;
+    int sequence = 0;
+    while (size < i + 1) {
+      size = 2 * size + 1;
+      sequence++;
+    }
+    int x = i - 1;
+    while (size - 1 != x) {
+      size = (size - 1) >> 1;
+      sequence--;
+      x %= size;
+    }
+    return 1 << sequence;
+  }
+
+  private void heapInsert(int variable) {
+    heap[heapSize] = variable;
+    heapPositions[variable] = heapSize;
+    heapSiftUp(heapSize++);
+  }
+
+  private int heapRemoveMax() {
+    int top = heap[0];
+    heapPositions[top] = -1;
+    int last = heap[--heapSize];
+    if (heapSize > 0) {
+      heap[0] = last;
+      heapPositions[last] = 0;
+      heapSiftDown(0);
+    }
+    return top;
+  }
+
+  private void heapSiftUp(int position) {
+    int variable = heap[position];
+    while (position > 0) {
+      int parent = (position - 1) >> 1;
+      if (activity[heap[parent]] >= activity[variable]) break;
+      heap[position] = heap[parent];
+      heapPositions[heap[position]] = position;
+      position = parent;
+    }
+    heap[position] = variable;
+    heapPositions[variable] = position;
+  }
+
+  private void heapSiftDown(int position) {
+    int variable = heap[position];
+    while (true) {
+      int child = 2 * position + 1;
+      if (child >= heapSize) break;
+      if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) child++;
+      if (activity[heap[child]] <= activity[variable]) break;
+      heap[position] = heap[child];
+      heapPositions[heap[position]] = position;
+      position = child;
+    }
+    heap[position] = variable;
+    heapPositions[variable] = position;
+  }
+}
@@ -0,0 +1,193 @@
+package com.comp301.a09akari.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encoding of a puzzle as a CNF formula with one variable per CORRIDOR cell, true when the cell
+ * holds a lamp. The clauses say that each row and column segment holds at most one lamp, that
+ * every corridor cell shares a segment with at least one lamp, and that every clue has exactly its
+ * number of lamps next to it. Long segments use a sequential counter with auxiliary variables
+ * instead of pairwise clauses, so the formula stays linear in the size of the board. Variables
+ * and literals follow the DIMACS convention: variables are numbered from 1 and a negative literal
+ * is the negation of its variable.
+ */
+public final class CnfEncoding {
+  /** Segments up to this length are encoded with pairwise at-most-one clauses */
+  private static final int PAIRWISE_LIMIT = 5;
+
+  private final int width;
+  private final int height;
+  private final int[] cellVariables;
+  private final List<int[]> clauses;
+  private int variableCount;
+
+  private CnfEncoding(Puzzle puzzle) {
+    SegmentIndex segments = SegmentIndex.of(puzzle);
+    this.width = segments.getWidth();
+    this.height = segments.getHeight();
+    this.cellVariables = new int[segments.getCellCount()];
+    this.clauses = new ArrayList<>();
+
+    for (int cell = 0; cell < cellVariables.length; cell++) {
+      if (segments.isCorridor(cell)) {
+        cellVariables[cell] = ++variableCount;
+      }
+    }
+
+    for (int segment = 0; segment < segments.getRowSegmentCount(); segment++) {
+      atMostOne(
+          segmentVariables(
+              segments.getRowSegmentStart(segment), segments.getRowSegmentEnd(segment), 1));
+    }
+    for (int segment = 0; segment < segments.getColSegmentCount(); segment++) {
+      atMostOne(
+          segmentVariables(
+              segments.getColSegmentStart(segment), segments.getColSegmentEnd(segment), width));
+    }
+
+    for (int cell = 0; cell < cellVariables.length; cell++) {
+      if (!segments.isCorridor(cell)) continue;
+      int rowSegment = segments.getRowSegment(cell);
+      int colSegment = segments.getColSegment(cell);
+      int[] row =
+          segmentVariables(
+              segments.getRowSegmentStart(rowSegment), segments.getRowSegmentEnd(rowSegment), 1);
+      int[] col =
+          segmentVariables(
+              segments.getColSegmentStart(colSegment),
+              segments.getColSegmentEnd(colSegment),
+              width);
+      // The cell's own variable appears in both segments, so drop it from the column copy
+      int[] coverage = new int[row.length + col.length - 1];
+      System.arraycopy(row, 0, coverage, 0, row.length);
+      int count = row.length;
+      for (int variable : col) {
+        if (variable != cellVariables[cell]) coverage[count++] = variable;
+      }
+      clauses.add(coverage);
+    }
+
+    for (int cell = 0; cell < cellVariables.length; cell++) {
+      int clue = segments.getClue(cell);
+      if (clue >= 0) {
+        exactly(clue, neighbourVariables(cell / width, cell % width));
+      }
+    }
+  }
+
+  /** Encodes the given puzzle. Throws an IllegalArgumentException if the puzzle is null */
+  public static CnfEncoding of(Puzzle puzzle) {
+    if (puzzle == null) {
+      throw new IllegalArgumentException("Puzzle cannot be null");
+    }
+    return new CnfEncoding(puzzle);
+  }
+
+  /** Returns the number of variables, including auxiliary ones which are not cells */
+  public int getVariableCount() {
+    return variableCount;
+  }
+
+  public int getClauseCount() {
+    return clauses.size();
+  }
+
+  /** Writes the formula in the DIMACS CNF format understood by most SAT solvers */
+  public void writeDimacs(Appendable out) throws IOException {
+    out.append("p cnf ")
+        .append(String.valueOf(variableCount))
+        .append(' ')
+        .append(String.valueOf(clauses.size()))
+        .append('\n');
+    for (int[] clause : clauses) {
+      for (int literal : clause) {
+        out.append(String.valueOf(literal)).append(' ');
+      }
+      out.append("0\n");
+    }
+  }
+
+  List<int[]> getClauses() {
+    return Collections.unmodifiableList(clauses);
+  }
+
+  /** Returns the variable of the cell at the given flat index, or 0 if it is not a CORRIDOR */
+  int getCellVariable(int cell) {
+    return cellVariables[cell];
+  }
+
+  int getCellCount() {
+    return cellVariables.length;
+  }
+
+  /** Returns the lamps of a satisfying assignment, given as the value of each variable from 1 */
+  Solution decode(boolean[] assignment) {
+    LampBitSet lamps = new LampBitSet(cellVariables.length);
+    for (int cell = 0; cell < cellVariables.length; cell++) {
+      if (cellVariables[cell] != 0 && assignment[cellVariables[cell]]) {
+        lamps.set(cell);
+      }
+    }
+    return new Solution(width, height, lamps);
+  }
+
+  private int[] segmentVariables(int start, int end, int step) {
+    int[] variables = new int[(end - start + step - 1) / step];
+    for (int i = 0, cell = start; cell < end; i++, cell += step) {
+      variables[i] = cellVariables[cell];
+    }
+    return variables;
+  }
+
+  private int[] neighbourVariables(int r, int c) {
+    int[] variables = new int[4];
+    int count = 0;
+    int cell = r * width + c;
+    if (r > 0 && cellVariables[cell - width] != 0) variables[count++] = cellVariables[cell - width];
+    if (r < height - 1 && cellVariables[cell + width] != 0) {
+      variables[count++] = cellVariables[cell + width];
+    }
+    if (c > 0 && cellVariables[cell - 1] != 0) variables[count++] = cellVariables[cell - 1];
+    if (c < width - 1 && cellVariables[cell + 1] != 0) variables[count++] = cellVariables[cell + 1];
+    int[] result = new int[count];
+    System.arraycopy(variables, 0, result, 0, count);
+    return result;
+  }
+
+  private void atMostOne(int[] variables) {
+    if (variables.length <= PAIRWISE_LIMIT) {
+      for (int i = 0; i < variables.length; i++) {
+        for (int j = i + 1; j < variables.length; j++) {
+          clauses.add(new int[] {-variables[i], -variables[j]});
+        }
+      }
+      return;
+    }
+    // Sequential counter: s_i is true once any of the first i + 1 variables is true
+    int previous = ++variableCount;
+    clauses.add(new int[] {-variables[0], previous});
+    for (int i = 1; i < variables.length - 1; i++) {
+      int current = ++variableCount;
+      clauses.add(new int[] {-variables[i], current});
+      clauses.add(new int[] {-previous, current});
+      clauses.add(new int[] {-variables[i], -previous});
+      previous = current;
+    }
+    clauses.add(new int[] {-variables[variables.length - 1], -previous});
+  }
+
+  /** Forbids every assignment of the (at most four) variables whose true count is not k */
+  private void exactly(int k, int[] variables) {
+    for (int mask = 0; mask < 1 << variables.length; mask++) {
+      if (Integer.bitCount(mask) == k) continue;
+      int[] clause = new int[variables.length];
+      for (int i = 0; i < variables.length; i++) {
+        clause[i] = (mask & (1 << i)) != 0 ? -variables[i] : variables[i];
+      }
+      clauses.add(clause);
+    }
+  }
+}
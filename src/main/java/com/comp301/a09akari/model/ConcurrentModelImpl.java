@@ -0,0 +1,389 @@
+package com.comp301.a09akari.model;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Model safe to share between threads. Every puzzle's lamp state is guarded by its own
+ * StampedLock, so work on different puzzles never contends. Queries read optimistically without
+ * taking the lock, and only fall back to a read lock if a writer got in the way; lamp changes take
+ * the puzzle's write lock for the few counter updates they need.
+ *
+ * <p>Each operation acts on the puzzle that was active when it was called. Batches belong to the
+ * thread that began them. Changes are queued under the write lock, so those to one puzzle are
+ * queued in the order they were made, and are handed to observers one at a time by whichever
+ * mutating thread finds no other dispatch running; a writer never waits for observers. Observers
+ * may therefore be called from any mutating thread, and may be added or removed at any time,
+ * including from inside an update. An observer that changes the model from inside an update has
+ * its change delivered once every observer has seen the current one, so all observers see changes
+ * in the same order. An observer re-reading the whole board after a change that affects it may
+ * already see changes still queued behind it.
+ */
+public class ConcurrentModelImpl implements Model {
+  /** Reads a value about one cell, or the whole board if the cell is ignored */
+  private interface Query {
+    int read(BoardState state, int cell);
+  }
+
+  /** One puzzle's lamp state and the lock guarding it */
+  private static final class Stripe {
+    private final BoardState state;
+    private final StampedLock lock = new StampedLock();
+    private HintFinder hintFinder;
+
+    Stripe(BoardState state) {
+      this.state = state;
+    }
+  }
+
+  /** Batch state of one thread */
+  private static final class Batch {
+    private int depth;
+    private boolean switchedPuzzle;
+    private final Set<Stripe> touched = new LinkedHashSet<>();
+  }
+
+  private final PuzzleLibrary puzzleLibrary;
+  private volatile int puzzleIndex;
+  private final ConcurrentHashMap<Integer, Stripe> stripesByPuzzle;
+  private final List<ModelObserver> observerList;
+  private final Queue<ModelChange> pending;
+  /** Whether some thread is handing changes to observers, which a nested call must not do */
+  private final AtomicBoolean dispatching;
+  private final ThreadLocal<Batch> batches;
+
+  /**
+   * Creates a model over the library, which must itself be safe to read from several threads if
+   * this model is shared. Throws an IllegalArgumentException if the library is null
+   */
+  public ConcurrentModelImpl(PuzzleLibrary library) {
+    if (library == null) throw new IllegalArgumentException("Library cannot be null");
+
+    this.puzzleLibrary = library;
+    this.stripesByPuzzle = new ConcurrentHashMap<>();
+    this.observerList = new CopyOnWriteArrayList<>();
+    this.pending = new ConcurrentLinkedQueue<>();
+    this.dispatching = new AtomicBoolean();
+    this.batches = ThreadLocal.withInitial(Batch::new);
+  }
+
+  @Override
+  public void addLamp(int row, int col) {
+    Stripe stripe = activeStripe();
+    int cell = validatePosition(stripe, row, col, CellType.CORRIDOR);
+    long stamp = stripe.lock.writeLock();
+    try {
+      if (stripe.state.addLamp(cell)) changed(stripe, ModelChange.Type.LAMP_ADDED, row, col);
+    } finally {
+      stripe.lock.unlockWrite(stamp);
+    }
+    dispatch();
+  }
+
+  @Override
+  public void removeLamp(int row, int col) {
+    Stripe stripe = activeStripe();
+    int cell = validatePosition(stripe, row, col, CellType.CORRIDOR);
+    long stamp = stripe.lock.writeLock();
+    try {
+      if (stripe.state.removeLamp(cell)) changed(stripe, ModelChange.Type.LAMP_REMOVED, row, col);
+    } finally {
+      stripe.lock.unlockWrite(stamp);
+    }
+    dispatch();
+  }
+
+  @Override
+  public boolean isLamp(int row, int col) {
+    Stripe stripe = activeStripe();
+    int cell = validatePosition(stripe, row, col, CellType.CORRIDOR);
+    return read(stripe, cell, (state, c) -> state.isLamp(c) ? 1 : 0) != 0;
+  }
+
+  @Override
+  public boolean isLit(int row, int col) {
+    Stripe stripe = activeStripe();
+    int cell = validatePosition(stripe, row, col, CellType.CORRIDOR);
+    return read(stripe, cell, (state, c) -> state.isLit(c) ? 1 : 0) != 0;
+  }
+
+  @Override
+  public boolean isLampIllegal(int row, int col) {
+    Stripe stripe = activeStripe();
+    int cell = validatePosition(stripe, row, col, null);
+    int illegal =
+        read(stripe, cell, (state, c) -> !state.isLamp(c) ? -1 : state.isLampIllegal(c) ? 1 : 0);
+    if (illegal < 0) {
+      throw new IllegalArgumentException("No lamp at position");
+    }
+    return illegal != 0;
+  }
+
+  @Override
+  public boolean isClueSatisfied(int row, int col) {
+    Stripe stripe = activeStripe();
+    int cell = validatePosition(stripe, row, col, CellType.CLUE);
+    return read(stripe, cell, (state, c) -> state.isClueSatisfied(c) ? 1 : 0) != 0;
+  }
+
+  @Override
+  public boolean isSolved() {
+    return read(activeStripe(), -1, (state, c) -> state.isSolved() ? 1 : 0) != 0;
+  }
+
+  @Override
+  public int getUnlitCount() {
+    return read(activeStripe(), -1, (state, c) -> state.getUnlitCount());
+  }
+
+  @Override
+  public int getUnsatisfiedClueCount() {
+    return read(activeStripe(), -1, (state, c) -> state.getUnsatisfiedClueCount());
+  }
+
+  @Override
+  public int getIllegalLampCount() {
+    return read(activeStripe(), -1, (state, c) -> state.getIllegalLampCount());
+  }
+
+  /** Finds the hint under the write lock, as the finder reads the lamps and keeps a cache */
+  @Override
+  public CompletableFuture<Hint> getHint() {
+    int index = puzzleIndex;
+    Stripe stripe = stripe(index);
+    long stamp = stripe.lock.writeLock();
+    try {
+      if (stripe.hintFinder == null) {
+        stripe.hintFinder =
+            new HintFinder(
+                puzzleLibrary.getPuzzle(index), stripe.state, ForkJoinPool.commonPool());
+      }
+      return stripe.hintFinder.getHint();
+    } finally {
+      stripe.lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public void resetPuzzle() {
+    Stripe stripe = activeStripe();
+    long stamp = stripe.lock.writeLock();
+    try {
+      stripe.state.clear();
+      changed(stripe, ModelChange.Type.PUZZLE_RESET, -1, -1);
+    } finally {
+      stripe.lock.unlockWrite(stamp);
+    }
+    dispatch();
+  }
+
+  /**
+   * Snapshots are immutable, so one read without locking is enough if the snapshot is up to date
+   * and no writer got in the way. Bringing it up to date changes the state, so that takes the
+   * write lock
+   */
+  @Override
+  public LampSnapshot getLampSnapshot() {
+    Stripe stripe = activeStripe();
+    StampedLock lock = stripe.lock;
+    long stamp = lock.tryOptimisticRead();
+    LampSnapshot snapshot = stripe.state.getSnapshotIfCurrent();
+    if (snapshot != null && lock.validate(stamp)) return snapshot;
+    stamp = lock.writeLock();
+    try {
+      return stripe.state.getSnapshot();
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public void restoreLampSnapshot(LampSnapshot snapshot) {
+    Stripe stripe = activeStripe();
+    long stamp = stripe.lock.writeLock();
+    try {
+      BoardState state = stripe.state;
+      ModelImpl.validateSnapshot(state, snapshot);
+      boolean[] changed = new boolean[1];
+      LampSnapshot.forEachDifference(
+          state.getSnapshot(),
+          snapshot,
+          cell -> {
+            if (snapshot.contains(cell)) {
+              state.addLamp(cell);
+            } else {
+              state.removeLamp(cell);
+            }
+            changed[0] = true;
+          });
+      if (changed[0]) changed(stripe, ModelChange.Type.BATCH, -1, -1);
+    } finally {
+      stripe.lock.unlockWrite(stamp);
+    }
+    dispatch();
+  }
+
+  @Override
+  public Puzzle getActivePuzzle() {
+    return puzzleLibrary.getPuzzle(puzzleIndex);
+  }
+
+  @Override
+  public int getActivePuzzleIndex() {
+    return puzzleIndex;
+  }
+
+  @Override
+  public void setActivePuzzleIndex(int index) {
+    if (index < 0 || index >= puzzleLibrary.size()) {
+      throw new IndexOutOfBoundsException("Invalid puzzle index");
+    }
+    puzzleIndex = index;
+    Batch batch = batches.get();
+    if (batch.depth > 0) {
+      batch.switchedPuzzle = true;
+      return;
+    }
+    pending.add(ModelChange.puzzleSwitched());
+    dispatch();
+  }
+
+  @Override
+  public int getPuzzleLibrarySize() {
+    return puzzleLibrary.size();
+  }
+
+  /**
+   * Holds the library's own monitor, which CachingPuzzleLibrary also locks, so that puzzles added
+   * through other threads cannot come between the addition and the index returned
+   */
+  @Override
+  public int addPuzzle(Puzzle puzzle) {
+    if (puzzle == null) throw new IllegalArgumentException("Puzzle cannot be null");
+    synchronized (puzzleLibrary) {
+      puzzleLibrary.addPuzzle(puzzle);
+      return puzzleLibrary.size() - 1;
+    }
+  }
+
+  @Override
+  public void beginBatch() {
+    batches.get().depth++;
+  }
+
+  @Override
+  public void commitBatch() {
+    Batch batch = batches.get();
+    if (batch.depth == 0) {
+      throw new IllegalStateException("No batch to commit");
+    }
+    if (--batch.depth > 0) return;
+    for (Stripe stripe : batch.touched) {
+      long stamp = stripe.lock.writeLock();
+      try {
+        if (batch.switchedPuzzle) {
+          // Observers will be told to re-read everything, so what was logged does not matter
+          stripe.state.discardChanges();
+        } else {
+          pending.add(stripe.state.takeChange(ModelChange.Type.BATCH, -1, -1));
+        }
+      } finally {
+        stripe.lock.unlockWrite(stamp);
+      }
+    }
+    if (batch.switchedPuzzle) pending.add(ModelChange.puzzleSwitched());
+    batch.touched.clear();
+    batch.switchedPuzzle = false;
+    dispatch();
+  }
+
+  @Override
+  public void addObserver(ModelObserver observer) {
+    observerList.add(observer);
+  }
+
+  @Override
+  public void removeObserver(ModelObserver observer) {
+    observerList.remove(observer);
+  }
+
+  private Stripe activeStripe() {
+    return stripe(puzzleIndex);
+  }
+
+  private Stripe stripe(int index) {
+    // Lamp state is only allocated for puzzles that are actually visited
+    return stripesByPuzzle.computeIfAbsent(
+        index, i -> new Stripe(new BoardState(puzzleLibrary.getPuzzle(i))));
+  }
+
+  /** Checks the position against the puzzle's immutable layout, returning its flat cell index */
+  private static int validatePosition(Stripe stripe, int row, int col, CellType expectedType) {
+    SegmentIndex segments = stripe.state.getSegments();
+    if (row < 0 || col < 0 || row >= segments.getHeight() || col >= segments.getWidth()) {
+      throw new IndexOutOfBoundsException("Position out of bounds");
+    }
+    int cell = segments.cellIndex(row, col);
+    if (expectedType != null && segments.getCellType(cell) != expectedType) {
+      throw new IllegalArgumentException("Invalid cell type");
+    }
+    return cell;
+  }
+
+  /**
+   * Runs the query without locking, and again under the read lock if a writer changed the state
+   * meanwhile. The lamp state's arrays never change size, so a query that raced a writer just
+   * reads a stale value, which is then thrown away
+   */
+  private static int read(Stripe stripe, int cell, Query query) {
+    StampedLock lock = stripe.lock;
+    long stamp = lock.tryOptimisticRead();
+    int value = query.read(stripe.state, cell);
+    if (lock.validate(stamp)) return value;
+    stamp = lock.readLock();
+    try {
+      return query.read(stripe.state, cell);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /** Queues a change to the puzzle, or holds it back until this thread's batch ends */
+  private void changed(Stripe stripe, ModelChange.Type type, int row, int col) {
+    Batch batch = batches.get();
+    if (batch.depth > 0) {
+      batch.touched.add(stripe);
+      return;
+    }
+    pending.add(stripe.state.takeChange(type, row, col));
+  }
+
+  /**
+   * Hands queued changes to observers unless a dispatch is already running, in which case it
+   * delivers them, whether it is on another thread or further up this one's stack in an observer
+   * that changed the model. The queue is checked again after the flag is cleared, so a change
+   * queued just as the other dispatch finished is not left behind
+   */
+  private void dispatch() {
+    while (!pending.isEmpty() && dispatching.compareAndSet(false, true)) {
+      try {
+        for (ModelChange change = pending.poll(); change != null; change = pending.poll()) {
+          for (ModelObserver observer : observerList) {
+            observer.update(this, change);
+          }
+        }
+      } finally {
+        dispatching.set(false);
+      }
+    }
+  }
+}
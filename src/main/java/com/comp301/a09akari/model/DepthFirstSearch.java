@@ -0,0 +1,63 @@
+package com.comp301.a09akari.model;
+
+/**
+ * Depth-first exploration of a search tree, reporting every solution to a SolutionCollector until
+ * it is done. Branches are taken on the dark cell with the fewest candidate lamps: the i-th branch
+ * places a lamp on the i-th candidate and rules out the ones before it, so branches never overlap
+ * and every solution is found exactly once. Once the search has failed often enough to suggest it
+ * is thrashing, every further node is strengthened with failed-literal probing before branching.
+ */
+class DepthFirstSearch {
+  /** Number of failed nodes after which the search starts probing */
+  static final int PROBE_AFTER_FAILURES = 32;
+
+  private final SolutionCollector collector;
+  private int failures;
+
+  DepthFirstSearch(SolutionCollector collector) {
+    this(collector, 0);
+  }
+
+  DepthFirstSearch(SolutionCollector collector, int failures) {
+    this.collector = collector;
+    this.failures = failures;
+  }
+
+  int getFailures() {
+    return failures;
+  }
+
+  void explore(SearchState state) {
+    if (collector.isDone()) return;
+    boolean consistent = failures < PROBE_AFTER_FAILURES ? state.propagate() : state.probe();
+    if (!consistent) {
+      failures++;
+      return;
+    }
+    int cell = state.chooseBranchCell();
+    if (cell < 0) {
+      collector.add(state.toSolution());
+      return;
+    }
+
+    int[] candidates = state.candidatesLighting(cell);
+    for (int i = 0; i < candidates.length && !collector.isDone(); i++) {
+      SearchState branch = state.copy();
+      for (int j = 0; j < i; j++) {
+        branch.forbid(candidates[j]);
+      }
+      branch.placeLamp(candidates[i]);
+      if (i == candidates.length - 1 || !offload(branch)) {
+        explore(branch);
+      }
+    }
+  }
+
+  /**
+   * Hook letting a parallel search hand a branch to another thread instead of exploring it here.
+   * Returns true if the branch was taken over
+   */
+  boolean offload(SearchState branch) {
+    return false;
+  }
+}
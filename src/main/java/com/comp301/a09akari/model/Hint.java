@@ -0,0 +1,47 @@
+package com.comp301.a09akari.model;
+
+/** A single suggested move for the active puzzle: a lamp to add or remove, and why */
+public final class Hint {
+  /** The kinds of move a hint can suggest */
+  public enum Action {
+    ADD_LAMP,
+    REMOVE_LAMP,
+  }
+
+  private final int row;
+  private final int col;
+  private final Action action;
+  private final String reason;
+
+  Hint(int row, int col, Action action, String reason) {
+    this.row = row;
+    this.col = col;
+    this.action = action;
+    this.reason = reason;
+  }
+
+  /** Getter method for the row of the cell this hint is about */
+  public int getRow() {
+    return row;
+  }
+
+  /** Getter method for the column of the cell this hint is about */
+  public int getCol() {
+    return col;
+  }
+
+  /** Getter method for the suggested move */
+  public Action getAction() {
+    return action;
+  }
+
+  /** Returns a short, human readable explanation of the hint */
+  public String getReason() {
+    return reason;
+  }
+
+  @Override
+  public String toString() {
+    return action + " at (" + row + ", " + col + "): " + reason;
+  }
+}
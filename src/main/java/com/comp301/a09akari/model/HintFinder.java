@@ -0,0 +1,168 @@
+package com.comp301.a09akari.model;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Finds hints for one puzzle. Mistakes and simple deductions are read straight off the lamps
+ * placed so far: a lamp that sees another lamp, a clue with too many lamps, a clue whose free
+ * neighbours must all hold lamps, and a dark cell that only one free cell can still light. Only
+ * when none of these apply is the lamp state compared against a reference solution, which is
+ * solved on the executor the first time it is needed and kept for the life of the finder. The last
+ * hint is cached until a lamp is added or removed.
+ */
+final class HintFinder {
+  private final Puzzle puzzle;
+  private final BoardState state;
+  private final Executor executor;
+  private CompletableFuture<Solution> reference;
+  private CompletableFuture<Hint> cachedHint;
+  private int cachedVersion;
+
+  HintFinder(Puzzle puzzle, BoardState state, Executor executor) {
+    this.puzzle = puzzle;
+    this.state = state;
+    this.executor = executor;
+  }
+
+  /**
+   * Returns a hint for the current lamps, completing with null if the puzzle is already solved or
+   * has no solution. Must be called from the thread that changes the lamps
+   */
+  CompletableFuture<Hint> getHint() {
+    if (cachedHint == null || cachedVersion != state.getVersion()) {
+      cachedHint = findHint();
+      cachedVersion = state.getVersion();
+    }
+    return cachedHint;
+  }
+
+  private CompletableFuture<Hint> findHint() {
+    if (state.isSolved()) return CompletableFuture.completedFuture(null);
+    Hint hint = deduce();
+    if (hint != null) return CompletableFuture.completedFuture(hint);
+
+    if (reference == null) {
+      reference =
+          CompletableFuture.supplyAsync(() -> new BacktrackingSolver().solve(puzzle), executor);
+    }
+    // The state may change before the solve finishes, so compare against a snapshot
+    LampSnapshot lamps = state.getSnapshot();
+    return reference.thenApply(solution -> solution == null ? null : compare(lamps, solution));
+  }
+
+  private Hint deduce() {
+    SegmentIndex segments = state.getSegments();
+    int cells = segments.getCellCount();
+    if (state.getIllegalLampCount() > 0) {
+      for (int cell = 0; cell < cells; cell++) {
+        if (state.isLamp(cell) && state.isLampIllegal(cell)) {
+          return hint(cell, Hint.Action.REMOVE_LAMP, "This lamp can see another lamp");
+        }
+      }
+    }
+
+    for (int cell = 0; cell < cells; cell++) {
+      int clue = state.getClue(cell);
+      if (clue < 0 || state.getAdjacentLampCount(cell) == clue) continue;
+      int[] neighbours = neighbours(cell);
+      if (state.getAdjacentLampCount(cell) > clue) {
+        for (int neighbour : neighbours) {
+          if (neighbour >= 0 && state.isLamp(neighbour)) {
+            return hint(neighbour, Hint.Action.REMOVE_LAMP, "This clue has too many lamps");
+          }
+        }
+      }
+      int free = 0;
+      int firstFree = -1;
+      for (int neighbour : neighbours) {
+        if (neighbour >= 0 && isFree(neighbour)) {
+          if (free++ == 0) firstFree = neighbour;
+        }
+      }
+      if (free > 0 && free == clue - state.getAdjacentLampCount(cell)) {
+        return hint(firstFree, Hint.Action.ADD_LAMP, "This clue needs a lamp in every free cell");
+      }
+    }
+
+    for (int cell = 0; cell < cells; cell++) {
+      if (!segments.isCorridor(cell) || state.isLit(cell)) continue;
+      int onlyLight = onlyFreeCellLighting(cell);
+      if (onlyLight >= 0) {
+        return hint(onlyLight, Hint.Action.ADD_LAMP, "Only a lamp here can light a dark cell");
+      }
+    }
+    return null;
+  }
+
+  /** Returns the only free cell able to light the given cell, or -1 if there is not exactly one */
+  private int onlyFreeCellLighting(int cell) {
+    SegmentIndex segments = state.getSegments();
+    int found = -1;
+    int rowSegment = segments.getRowSegment(cell);
+    int rowEnd = segments.getRowSegmentEnd(rowSegment);
+    for (int other = segments.getRowSegmentStart(rowSegment); other < rowEnd; other++) {
+      if (isFree(other)) {
+        if (found >= 0) return -1;
+        found = other;
+      }
+    }
+    int colSegment = segments.getColSegment(cell);
+    int colEnd = segments.getColSegmentEnd(colSegment);
+    for (int other = segments.getColSegmentStart(colSegment);
+        other < colEnd;
+        other += segments.getWidth()) {
+      if (other != cell && isFree(other)) {
+        if (found >= 0) return -1;
+        found = other;
+      }
+    }
+    return found;
+  }
+
+  /** Returns true if a lamp could still be placed on the cell without breaking a rule */
+  private boolean isFree(int cell) {
+    if (!state.getSegments().isCorridor(cell) || state.isLit(cell)) return false;
+    for (int neighbour : neighbours(cell)) {
+      if (neighbour >= 0
+          && state.getClue(neighbour) >= 0
+          && state.getAdjacentLampCount(neighbour) >= state.getClue(neighbour)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the four neighbours of the cell, with -1 for those off the board */
+  private int[] neighbours(int cell) {
+    SegmentIndex segments = state.getSegments();
+    int width = segments.getWidth();
+    int row = cell / width, col = cell % width;
+    return new int[] {
+      row > 0 ? cell - width : -1,
+      row < segments.getHeight() - 1 ? cell + width : -1,
+      col > 0 ? cell - 1 : -1,
+      col < width - 1 ? cell + 1 : -1
+    };
+  }
+
+  private Hint compare(LampSnapshot lamps, Solution solution) {
+    LampBitSet expected = solution.getLamps();
+    for (int cell = lamps.nextLamp(0); cell >= 0; cell = lamps.nextLamp(cell + 1)) {
+      if (!expected.get(cell)) {
+        return hint(cell, Hint.Action.REMOVE_LAMP, "This lamp is not part of the solution");
+      }
+    }
+    for (int cell = expected.nextSetBit(0); cell >= 0; cell = expected.nextSetBit(cell + 1)) {
+      if (!lamps.contains(cell)) {
+        return hint(cell, Hint.Action.ADD_LAMP, "This lamp is part of the solution");
+      }
+    }
+    return null;
+  }
+
+  private Hint hint(int cell, Hint.Action action, String reason) {
+    int width = state.getSegments().getWidth();
+    return new Hint(cell / width, cell % width, action, reason);
+  }
+}
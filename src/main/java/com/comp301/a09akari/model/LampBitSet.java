@@ -0,0 +1,90 @@
+package com.comp301.a09akari.model;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size set of cell indices backed by a long[] bitset. Unlike a Set of boxed positions, no
+ * method allocates, so membership checks in hot loops stay cheap.
+ */
+final class LampBitSet {
+  private final long[] words;
+  private final int size;
+
+  LampBitSet(int size) {
+    this.size = size;
+    this.words = new long[(size + 63) >>> 6];
+  }
+
+  private LampBitSet(LampBitSet other) {
+    this.size = other.size;
+    this.words = other.words.clone();
+  }
+
+  /** Returns an independent copy of this set */
+  LampBitSet copy() {
+    return new LampBitSet(this);
+  }
+
+  /** Returns the number of cells this set can hold */
+  int size() {
+    return size;
+  }
+
+  boolean get(int cell) {
+    return (words[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  /** Adds the cell, returning false if it was already present */
+  boolean set(int cell) {
+    long word = words[cell >>> 6];
+    long updated = word | (1L << cell);
+    words[cell >>> 6] = updated;
+    return updated != word;
+  }
+
+  /** Removes the cell, returning false if it was not present */
+  boolean clear(int cell) {
+    long word = words[cell >>> 6];
+    long updated = word & ~(1L << cell);
+    words[cell >>> 6] = updated;
+    return updated != word;
+  }
+
+  void clearAll() {
+    Arrays.fill(words, 0L);
+  }
+
+  /** Returns the number of cells in the set */
+  int cardinality() {
+    int count = 0;
+    for (long word : words) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  /** Returns the first cell at or after from that is in the set, or -1 if there is none */
+  int nextSetBit(int from) {
+    if (from >= size) return -1;
+    int index = from >>> 6;
+    long word = words[index] & (-1L << from);
+    while (word == 0) {
+      if (++index == words.length) return -1;
+      word = words[index];
+    }
+    return (index << 6) + Long.numberOfTrailingZeros(word);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof LampBitSet)) return false;
+    LampBitSet other = (LampBitSet) o;
+    return size == other.size && Arrays.equals(words, other.words);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * size + Arrays.hashCode(words);
+  }
+}
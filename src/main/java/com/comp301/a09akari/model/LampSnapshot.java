@@ -0,0 +1,181 @@
+package com.comp301.a09akari.model;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable set of the lamps on one puzzle at some moment. The bits live in a persistent trie: 64
+ * cells per word, 32 words per leaf and 32 children per inner node, with absent subtrees meaning
+ * no lamps. Boards of up to 32 words are a single leaf only as long as the board needs. Adding or
+ * removing a lamp copies only the path to its leaf and shares everything else with the snapshot it
+ * came from, so keeping every snapshot along a history costs memory in proportion to the edits
+ * made, and snapshots can be handed to other threads without copying.
+ */
+public final class LampSnapshot {
+  private static final int BITS = 5;
+  private static final int BRANCHING = 1 << BITS;
+  private static final int MASK = BRANCHING - 1;
+
+  private final int width;
+  private final int height;
+  /** Shift selecting the root's child from a word index, or 0 if the root is a leaf */
+  private final int shift;
+  private final Object root;
+  private final int lampCount;
+
+  private LampSnapshot(int width, int height, int shift, Object root, int lampCount) {
+    this.width = width;
+    this.height = height;
+    this.shift = shift;
+    this.root = root;
+    this.lampCount = lampCount;
+  }
+
+  /** Returns a snapshot of a width x height puzzle with no lamps */
+  static LampSnapshot empty(int width, int height) {
+    int words = (width * height + 63) >>> 6;
+    int shift = 0;
+    for (long capacity = BRANCHING; capacity < words; capacity <<= BITS) {
+      shift += BITS;
+    }
+    return new LampSnapshot(width, height, shift, null, 0);
+  }
+
+  /** Getter method for the width of the puzzle this snapshot belongs to */
+  public int getWidth() {
+    return width;
+  }
+
+  /** Getter method for the height of the puzzle this snapshot belongs to */
+  public int getHeight() {
+    return height;
+  }
+
+  /** Returns the number of lamps in this snapshot */
+  public int getLampCount() {
+    return lampCount;
+  }
+
+  /**
+   * Returns true if the snapshot has a lamp at row r, column c. Throws an IndexOutOfBoundsException
+   * if r or c is out of bounds
+   */
+  public boolean isLamp(int r, int c) {
+    if (r < 0 || r >= height || c < 0 || c >= width) {
+      throw new IndexOutOfBoundsException("Row or column out of bounds");
+    }
+    return contains(r * width + c);
+  }
+
+  /** Returns true if the snapshot has a lamp on the cell at the given flat index */
+  boolean contains(int cell) {
+    int word = cell >>> 6;
+    Object node = root;
+    for (int s = shift; s > 0 && node != null; s -= BITS) {
+      node = ((Object[]) node)[(word >>> s) & MASK];
+    }
+    return node != null && (((long[]) node)[word & MASK] & (1L << cell)) != 0;
+  }
+
+  /** Returns a snapshot with a lamp added on the cell, sharing all it can with this one */
+  LampSnapshot with(int cell) {
+    if (contains(cell)) return this;
+    Object updated = update(root, shift, leafLength(), cell, true);
+    return new LampSnapshot(width, height, shift, updated, lampCount + 1);
+  }
+
+  /** Returns a snapshot with the lamp on the cell removed, sharing all it can with this one */
+  LampSnapshot without(int cell) {
+    if (!contains(cell)) return this;
+    Object updated = update(root, shift, leafLength(), cell, false);
+    return new LampSnapshot(width, height, shift, updated, lampCount - 1);
+  }
+
+  /** Returns the first cell at or after from holding a lamp, or -1 if there is none */
+  int nextLamp(int from) {
+    if (root == null) return -1;
+    int words = (width * height + 63) >>> 6;
+    int word = from >>> 6;
+    long mask = -1L << from;
+    while (word < words) {
+      Object node = root;
+      int s = shift;
+      while (s > 0) {
+        Object child = ((Object[]) node)[(word >>> s) & MASK];
+        if (child == null) break;
+        node = child;
+        s -= BITS;
+      }
+      if (s > 0) {
+        // The missing child covers 2^s words, none of which hold a lamp
+        word = ((word >>> s) + 1) << s;
+      } else {
+        long bits = ((long[]) node)[word & MASK] & mask;
+        if (bits != 0) return (word << 6) + Long.numberOfTrailingZeros(bits);
+        word++;
+      }
+      mask = -1L;
+    }
+    return -1;
+  }
+
+  /**
+   * Passes every cell holding a lamp in exactly one of two snapshots of the same puzzle to the
+   * action. Subtrees the snapshots share are skipped, so snapshots a few edits apart are compared
+   * in time proportional to those edits
+   */
+  static void forEachDifference(LampSnapshot a, LampSnapshot b, IntConsumer action) {
+    if (a.width != b.width || a.height != b.height) {
+      throw new IllegalArgumentException("Snapshots are of different sized puzzles");
+    }
+    difference(a.root, b.root, a.shift, 0, action);
+  }
+
+  private static void difference(Object a, Object b, int shift, int firstWord, IntConsumer action) {
+    if (a == b) return;
+    if (shift == 0) {
+      long[] aWords = (long[]) a;
+      long[] bWords = (long[]) b;
+      int length = aWords == null ? bWords.length : aWords.length;
+      for (int i = 0; i < length; i++) {
+        long bits = (aWords == null ? 0 : aWords[i]) ^ (bWords == null ? 0 : bWords[i]);
+        for (; bits != 0; bits &= bits - 1) {
+          action.accept(((firstWord + i) << 6) + Long.numberOfTrailingZeros(bits));
+        }
+      }
+      return;
+    }
+    Object[] aChildren = (Object[]) a;
+    Object[] bChildren = (Object[]) b;
+    for (int i = 0; i < BRANCHING; i++) {
+      difference(
+          aChildren == null ? null : aChildren[i],
+          bChildren == null ? null : bChildren[i],
+          shift - BITS,
+          firstWord + (i << shift),
+          action);
+    }
+  }
+
+  /** Returns the number of words in each leaf, fewer than BRANCHING if the root is the only one */
+  private int leafLength() {
+    return shift == 0 ? (width * height + 63) >>> 6 : BRANCHING;
+  }
+
+  /** Returns a copy of the node's path to the cell with the cell's bit set or cleared */
+  private static Object update(Object node, int shift, int leafLength, int cell, boolean lamp) {
+    int word = cell >>> 6;
+    if (shift == 0) {
+      long[] words = node == null ? new long[leafLength] : ((long[]) node).clone();
+      if (lamp) {
+        words[word & MASK] |= 1L << cell;
+      } else {
+        words[word & MASK] &= ~(1L << cell);
+      }
+      return words;
+    }
+    Object[] children = node == null ? new Object[BRANCHING] : ((Object[]) node).clone();
+    int index = (word >>> shift) & MASK;
+    children[index] = update(children[index], shift - BITS, leafLength, cell, lamp);
+    return children;
+  }
+}
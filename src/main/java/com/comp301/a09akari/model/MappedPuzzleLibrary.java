@@ -0,0 +1,146 @@
+package com.comp301.a09akari.model;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only PuzzleLibrary over a file in PuzzleFormat. The file is memory-mapped and only its
+ * header is read up front, so opening a library takes about the same time however many puzzles it
+ * holds; each puzzle is decoded from the mapping when getPuzzle() asks for it, without being kept.
+ * As a PuzzleSource it can sit behind a CachingPuzzleLibrary.
+ *
+ * <p>A single mapping cannot exceed 2 GB, so the index and the puzzle records are mapped
+ * separately, the records in chunks of whole puzzles found by binary search over the index.
+ */
+public class MappedPuzzleLibrary implements PuzzleLibrary, PuzzleSource {
+  private static final long CHUNK_SIZE = 1L << 30;
+
+  private final MappedByteBuffer indexBuffer;
+  private final int size;
+  /** The first puzzle of each chunk, in increasing order */
+  private final int[] chunkFirsts;
+  /** The file offset each chunk is mapped from */
+  private final long[] chunkStarts;
+  private final MappedByteBuffer[] chunks;
+
+  /**
+   * Maps the given puzzle file. Throws an IOException if it cannot be read or is not in
+   * PuzzleFormat
+   */
+  public MappedPuzzleLibrary(Path file) throws IOException {
+    this(file, CHUNK_SIZE);
+  }
+
+  /** Maps the file with chunks of at most chunkSize bytes, unless a single puzzle is larger */
+  MappedPuzzleLibrary(Path file, long chunkSize) throws IOException {
+    // The mappings stay valid after the channel is closed
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long fileSize = channel.size();
+      if (fileSize < PuzzleFormat.HEADER_SIZE) {
+        throw new IOException("Not a puzzle file: " + file);
+      }
+      MappedByteBuffer header =
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, PuzzleFormat.HEADER_SIZE);
+      if (header.getInt(0) != PuzzleFormat.MAGIC || header.getInt(4) != PuzzleFormat.VERSION) {
+        throw new IOException("Not a puzzle file: " + file);
+      }
+      this.size = header.getInt(8);
+      long indexEnd = PuzzleFormat.HEADER_SIZE + 8L * (size + 1L);
+      if (size < 0 || indexEnd > fileSize) {
+        throw new IOException("Corrupt puzzle file: " + file);
+      }
+      if (indexEnd > Integer.MAX_VALUE) {
+        throw new IOException("Too many puzzles to map: " + file);
+      }
+      this.indexBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, indexEnd);
+      if (offset(0) != indexEnd || offset(size) != fileSize) {
+        throw new IOException("Corrupt puzzle file: " + file);
+      }
+
+      List<MappedByteBuffer> mapped = new ArrayList<>();
+      int[] firsts = new int[1];
+      long[] starts = new long[1];
+      for (int first = 0; first < size; ) {
+        long start = offset(first);
+        int end = lastEndingBefore(first, start + chunkSize);
+        long length = offset(end) - start;
+        if (start < indexEnd || length < 0 || length > Integer.MAX_VALUE) {
+          throw new IOException("Corrupt puzzle file: " + file);
+        }
+        if (mapped.size() == firsts.length) {
+          firsts = Arrays.copyOf(firsts, firsts.length * 2);
+          starts = Arrays.copyOf(starts, starts.length * 2);
+        }
+        firsts[mapped.size()] = first;
+        starts[mapped.size()] = start;
+        mapped.add(channel.map(FileChannel.MapMode.READ_ONLY, start, length));
+        first = end;
+      }
+      this.chunkFirsts = Arrays.copyOf(firsts, mapped.size());
+      this.chunkStarts = Arrays.copyOf(starts, mapped.size());
+      this.chunks = mapped.toArray(new MappedByteBuffer[0]);
+    }
+  }
+
+  /**
+   * Returns the largest puzzle index past first whose start, which is where the puzzle before it
+   * ends, is at most limit, or first + 1 if even the first puzzle runs past it
+   */
+  private int lastEndingBefore(int first, long limit) {
+    int lo = first + 1;
+    int hi = size;
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (offset(mid) <= limit) {
+        lo = mid;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return lo;
+  }
+
+  /** Mapped libraries are read-only, so this always throws an UnsupportedOperationException */
+  @Override
+  public void addPuzzle(Puzzle puzzle) {
+    throw new UnsupportedOperationException("Mapped puzzle libraries are read-only");
+  }
+
+  /**
+   * Decodes the puzzle at the index. Throws an IllegalStateException if the file's index gives
+   * the puzzle a position or length that its chunk cannot hold
+   */
+  @Override
+  public Puzzle getPuzzle(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Invalid puzzle index");
+    }
+    int chunk = Arrays.binarySearch(chunkFirsts, index);
+    if (chunk < 0) chunk = -chunk - 2;
+    long position = offset(index) - chunkStarts[chunk];
+    if (position < 0 || position > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Corrupt puzzle file index at puzzle " + index);
+    }
+    return PuzzleFormat.read(chunks[chunk], (int) position, offset(index + 1) - offset(index));
+  }
+
+  @Override
+  public Puzzle load(int index) {
+    return getPuzzle(index);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  private long offset(int index) {
+    return indexBuffer.getLong(PuzzleFormat.HEADER_SIZE + 8 * index);
+  }
+}
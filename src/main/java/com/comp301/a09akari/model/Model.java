@@ -1,5 +1,7 @@
 package com.comp301.a09akari.model;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface Model {
   /**
    * Adds a lamp if one doesn't already exist to the active puzzle in the cell at row r, column c.
@@ -54,15 +56,47 @@ public interface Model {
   /** Getter method for the number of puzzles contained in the internal PuzzleLibrary */
   int getPuzzleLibrarySize();
 
+  /**
+   * Adds the puzzle to the end of the internal PuzzleLibrary and returns its index. Throws an
+   * IllegalArgumentException if the puzzle is null
+   */
+  int addPuzzle(Puzzle puzzle);
+
   /** Resets the active puzzle by removing all lamps which have been placed */
   void resetPuzzle();
 
+  /**
+   * Returns an immutable snapshot of the lamps in the active puzzle. Repeated calls with no change
+   * in between return the same snapshot at no cost. Otherwise the cost is amortized over the
+   * changes: the path to each cell toggled since the previous snapshot is copied, and everything
+   * else is shared with it. Models safe to share between threads may take the puzzle's write lock
+   * to do so
+   */
+  LampSnapshot getLampSnapshot();
+
+  /**
+   * Replaces the lamps in the active puzzle with those of a snapshot taken from it or another
+   * puzzle of the same size. Only the cells that differ are updated, and observers receive them as
+   * one change. Throws an IllegalArgumentException if the snapshot is null, its size differs from
+   * the active puzzle, or it would place a lamp outside a CORRIDOR cell
+   */
+  void restoreLampSnapshot(LampSnapshot snapshot);
+
   /**
    * Returns true if the active puzzle is solved (i.e. every clue is satisfied and every corridor is
    * illuminated)
    */
   boolean isSolved();
 
+  /** Returns the number of CORRIDOR cells in the active puzzle which are not currently lit */
+  int getUnlitCount();
+
+  /** Returns the number of CLUE cells in the active puzzle which are not currently satisfied */
+  int getUnsatisfiedClueCount();
+
+  /** Returns the number of lamps in the active puzzle which are currently illegally placed */
+  int getIllegalLampCount();
+
   /**
    * Returns true if the clue located at row r, column c of the active puzzle is satisfied (i.e. has
    * exactly the number of lamps adjacent as is specified by the clue). Throws an
@@ -71,6 +105,27 @@ public interface Model {
    */
   boolean isClueSatisfied(int r, int c);
 
+  /**
+   * Returns a hint for the lamps currently placed in the active puzzle, or a future completing with
+   * null if the puzzle is already solved or has no solution. Simple deductions complete right away;
+   * otherwise the puzzle is solved in the background. The same future is returned until a lamp is
+   * added or removed
+   */
+  CompletableFuture<Hint> getHint();
+
+  /**
+   * Starts a batch of changes. Until the matching commitBatch(), changes are applied as usual but
+   * observers are not notified. Batches may be nested, in which case only the outermost one counts
+   */
+  void beginBatch();
+
+  /**
+   * Ends a batch started by beginBatch(). Once the outermost batch ends, observers receive a single
+   * change covering everything done since it began, if anything was. Throws an
+   * IllegalStateException if no batch has been started
+   */
+  void commitBatch();
+
   /** Adds an observer to the model */
   void addObserver(ModelObserver observer);
 
@@ -0,0 +1,191 @@
+package com.comp301.a09akari.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Description of a single change to a Model, passed to ModelObserver.update(Model, ModelChange).
+ * Besides the kind of change and the cell it happened at, a change lists every cell whose state
+ * flipped as a result, so observers can do work proportional to the change instead of the board.
+ * Cells are given as flat indices (row * width + col) into the active puzzle.
+ *
+ * <p>A BATCH change stands for several changes made together. Its lists hold only net flips, so a
+ * cell lit and then darkened again within the batch is not listed at all.
+ */
+public final class ModelChange {
+  /** The kinds of change a Model reports */
+  public enum Type {
+    LAMP_ADDED,
+    LAMP_REMOVED,
+    PUZZLE_RESET,
+    BATCH,
+    PUZZLE_SWITCHED,
+  }
+
+  private static final int[] NO_CELLS = new int[0];
+
+  private final Type type;
+  private final int row;
+  private final int col;
+  private final int[] lampFlips;
+  private final int[] litFlips;
+  private final int[] clueFlips;
+  private final int[] legalityFlips;
+
+  private ModelChange(
+      Type type,
+      int row,
+      int col,
+      int[] lampFlips,
+      int[] litFlips,
+      int[] clueFlips,
+      int[] legalityFlips) {
+    this.type = type;
+    this.row = row;
+    this.col = col;
+    this.lampFlips = lampFlips;
+    this.litFlips = litFlips;
+    this.clueFlips = clueFlips;
+    this.legalityFlips = legalityFlips;
+  }
+
+  /**
+   * Creates a change from logs of flipped cells, which may list a cell more than once. Only the
+   * cells listed an odd number of times flipped in the end
+   */
+  static ModelChange of(
+      Type type,
+      int row,
+      int col,
+      int[] lampFlips,
+      int[] litFlips,
+      int[] clueFlips,
+      int[] legalityFlips) {
+    return new ModelChange(
+        type,
+        row,
+        col,
+        netFlips(lampFlips),
+        netFlips(litFlips),
+        netFlips(clueFlips),
+        netFlips(legalityFlips));
+  }
+
+  /** Creates the change for switching to another puzzle, after which everything may differ */
+  static ModelChange puzzleSwitched() {
+    return new ModelChange(Type.PUZZLE_SWITCHED, -1, -1, NO_CELLS, NO_CELLS, NO_CELLS, NO_CELLS);
+  }
+
+  /**
+   * Combines changes made one after another to the same model into a single change with the same
+   * overall effect. A single change is returned as it is. Throws an IllegalArgumentException if
+   * the list is null or empty
+   */
+  public static ModelChange merge(List<ModelChange> changes) {
+    if (changes == null || changes.isEmpty()) {
+      throw new IllegalArgumentException("Changes cannot be null or empty");
+    }
+    if (changes.size() == 1) return changes.get(0);
+    for (ModelChange change : changes) {
+      if (change.affectsWholeBoard()) return puzzleSwitched();
+    }
+    return of(
+        Type.BATCH,
+        -1,
+        -1,
+        concat(changes, c -> c.lampFlips),
+        concat(changes, c -> c.litFlips),
+        concat(changes, c -> c.clueFlips),
+        concat(changes, c -> c.legalityFlips));
+  }
+
+  /** Getter method for the kind of change */
+  public Type getType() {
+    return type;
+  }
+
+  /** Returns the row of the lamp added or removed, or -1 for other kinds of change */
+  public int getRow() {
+    return row;
+  }
+
+  /** Returns the column of the lamp added or removed, or -1 for other kinds of change */
+  public int getCol() {
+    return col;
+  }
+
+  /** Returns the cells where a lamp was added or removed */
+  public int[] getLampFlips() {
+    return lampFlips.clone();
+  }
+
+  /** Returns the CORRIDOR cells which went from lit to unlit or back */
+  public int[] getLitFlips() {
+    return litFlips.clone();
+  }
+
+  /** Returns the CLUE cells which went from satisfied to unsatisfied or back */
+  public int[] getClueFlips() {
+    return clueFlips.clone();
+  }
+
+  /**
+   * Returns the cells whose lamp went from legal to illegal or back, where a cell without a lamp
+   * counts as legal. Adding a lamp that is illegal straight away lists it here as well
+   */
+  public int[] getLegalityFlips() {
+    return legalityFlips.clone();
+  }
+
+  /** Returns true if observers cannot rely on the flip lists and should re-read the whole board */
+  public boolean affectsWholeBoard() {
+    return type == Type.PUZZLE_SWITCHED;
+  }
+
+  @Override
+  public String toString() {
+    return type
+        + (row >= 0 ? " at (" + row + ", " + col + ")" : "")
+        + ": "
+        + lampFlips.length
+        + " lamp, "
+        + litFlips.length
+        + " lit, "
+        + clueFlips.length
+        + " clue, "
+        + legalityFlips.length
+        + " legality flips";
+  }
+
+  /** Returns the cells of a log listed an odd number of times, in increasing order */
+  private static int[] netFlips(int[] log) {
+    if (log.length == 0) return NO_CELLS;
+    int[] sorted = log.clone();
+    Arrays.sort(sorted);
+    int kept = 0;
+    for (int i = 0; i < sorted.length; ) {
+      int j = i;
+      while (j < sorted.length && sorted[j] == sorted[i]) j++;
+      if ((j - i) % 2 == 1) sorted[kept++] = sorted[i];
+      i = j;
+    }
+    return Arrays.copyOf(sorted, kept);
+  }
+
+  private static int[] concat(
+      List<ModelChange> changes, Function<ModelChange, int[]> cells) {
+    int length = 0;
+    for (ModelChange change : changes) {
+      length += cells.apply(change).length;
+    }
+    int[] all = new int[length];
+    int offset = 0;
+    for (ModelChange change : changes) {
+      int[] part = cells.apply(change);
+      System.arraycopy(part, 0, all, offset, part.length);
+      offset += part.length;
+    }
+    return all;
+  }
+}
@@ -1,37 +1,21 @@
 package com.comp301.a09akari.model;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 public class ModelImpl implements Model {
-  private static class Position {
-    final int row, col;
-
-    Position(int row, int col) {
-      this.row = row;
-      this.col = col;
-    }
-
-    @Override
-    public boolean equals(Object o) {
-      if (this == o) return true;
-      if (!(o instanceof Position)) return false;
-      Position position = (Position) o;
-      return row == position.row && col == position.col;
-    }
-
-    @Override
-    public int hashCode() {
-      return 31 * row + col;
-    }
-  }
-
   private final PuzzleLibrary puzzleLibrary;
   private int puzzleIndex;
-  private final List<Set<Position>> lampsByPuzzle;
+  private final Map<Integer, BoardState> statesByPuzzle;
+  private final Map<Integer, HintFinder> hintFindersByPuzzle;
   private final List<ModelObserver> observerList;
+  private int batchDepth;
+  private boolean batchChanged;
+  private boolean batchSwitchedPuzzle;
 
   public ModelImpl(PuzzleLibrary library) {
     if (library == null) throw new IllegalArgumentException("Library cannot be null");
@@ -39,19 +23,18 @@ public class ModelImpl implements Model {
     this.puzzleLibrary = library;
     this.puzzleIndex = 0;
     this.observerList = new ArrayList<>();
-    this.lampsByPuzzle = new ArrayList<>();
-
-    for (int i = 0; i < library.size(); i++) {
-      lampsByPuzzle.add(new HashSet<>());
-    }
+    // Lamp state is only allocated for puzzles that are actually visited
+    this.statesByPuzzle = new HashMap<>();
+    this.hintFindersByPuzzle = new HashMap<>();
   }
 
   private void validatePosition(int row, int col, CellType expectedType) {
-    Puzzle puzzle = getActivePuzzle();
-    if (row < 0 || col < 0 || row >= puzzle.getHeight() || col >= puzzle.getWidth()) {
+    SegmentIndex segments = getCurrentState().getSegments();
+    if (row < 0 || col < 0 || row >= segments.getHeight() || col >= segments.getWidth()) {
       throw new IndexOutOfBoundsException("Position out of bounds");
     }
-    if (expectedType != null && puzzle.getCellType(row, col) != expectedType) {
+    if (expectedType != null
+        && segments.getCellType(row * segments.getWidth() + col) != expectedType) {
       throw new IllegalArgumentException("Invalid cell type");
     }
   }
@@ -59,56 +42,71 @@ public class ModelImpl implements Model {
   @Override
   public void addLamp(int row, int col) {
     validatePosition(row, col, CellType.CORRIDOR);
-    lampsByPuzzle.get(puzzleIndex).add(new Position(row, col));
-    notifyObservers();
+    BoardState state = getCurrentState();
+    if (state.addLamp(toCell(row, col))) {
+      changed(ModelChange.Type.LAMP_ADDED, row, col);
+    }
   }
 
   @Override
   public void removeLamp(int row, int col) {
     validatePosition(row, col, CellType.CORRIDOR);
-    lampsByPuzzle.get(puzzleIndex).remove(new Position(row, col));
-    notifyObservers();
+    BoardState state = getCurrentState();
+    if (state.removeLamp(toCell(row, col))) {
+      changed(ModelChange.Type.LAMP_REMOVED, row, col);
+    }
   }
 
   @Override
   public boolean isLamp(int row, int col) {
     validatePosition(row, col, CellType.CORRIDOR);
-    return getCurrentPuzzleLamps().contains(new Position(row, col));
+    return getCurrentState().isLamp(toCell(row, col));
   }
 
   @Override
   public boolean isLit(int row, int col) {
     validatePosition(row, col, CellType.CORRIDOR);
-    Position pos = new Position(row, col);
-    return getCurrentPuzzleLamps().stream()
-        .anyMatch(lamp -> pos.equals(lamp) || isInLineOfSight(pos, lamp));
+    return getCurrentState().isLit(toCell(row, col));
   }
 
-  private Set<Position> getCurrentPuzzleLamps() {
-    return lampsByPuzzle.get(puzzleIndex);
+  /** Checks a snapshot can be restored into the state, looking only at the lamps it would add */
+  static void validateSnapshot(BoardState state, LampSnapshot snapshot) {
+    if (snapshot == null) throw new IllegalArgumentException("Snapshot cannot be null");
+    SegmentIndex segments = state.getSegments();
+    if (snapshot.getWidth() != segments.getWidth()
+        || snapshot.getHeight() != segments.getHeight()) {
+      throw new IllegalArgumentException("Snapshot is of a different sized puzzle");
+    }
+    LampSnapshot.forEachDifference(
+        state.getSnapshot(),
+        snapshot,
+        cell -> {
+          if (snapshot.contains(cell) && !segments.isCorridor(cell)) {
+            throw new IllegalArgumentException("Snapshot places a lamp outside a corridor");
+          }
+        });
   }
 
-  private boolean isInLineOfSight(Position p1, Position p2) {
-    if (p1.row == p2.row) {
-      int minCol = Math.min(p1.col, p2.col);
-      int maxCol = Math.max(p1.col, p2.col);
-      for (int col = minCol + 1; col < maxCol; col++) {
-        if (getActivePuzzle().getCellType(p1.row, col) != CellType.CORRIDOR) {
-          return false;
-        }
-      }
-      return true;
-    } else if (p1.col == p2.col) {
-      int minRow = Math.min(p1.row, p2.row);
-      int maxRow = Math.max(p1.row, p2.row);
-      for (int row = minRow + 1; row < maxRow; row++) {
-        if (getActivePuzzle().getCellType(row, p1.col) != CellType.CORRIDOR) {
-          return false;
-        }
-      }
-      return true;
+  /** Returns the lamps on every puzzle visited so far, keyed by puzzle index */
+  Map<Integer, LampSnapshot> getVisitedSnapshots() {
+    Map<Integer, LampSnapshot> snapshots = new HashMap<>();
+    for (Map.Entry<Integer, BoardState> entry : statesByPuzzle.entrySet()) {
+      snapshots.put(entry.getKey(), entry.getValue().getSnapshot());
     }
-    return false;
+    return snapshots;
+  }
+
+  private BoardState getCurrentState() {
+    BoardState state = statesByPuzzle.get(puzzleIndex);
+    if (state == null) {
+      state = new BoardState(getActivePuzzle());
+      statesByPuzzle.put(puzzleIndex, state);
+    }
+    return state;
+  }
+
+  private int toCell(int row, int col) {
+    return getCurrentState().getSegments().cellIndex(row, col);
   }
 
   @Override
@@ -117,50 +115,77 @@ public class ModelImpl implements Model {
     if (!isLamp(row, col)) {
       throw new IllegalArgumentException("No lamp at position");
     }
-    Position lampPos = new Position(row, col);
-    return getCurrentPuzzleLamps().stream()
-        .anyMatch(otherLamp -> !lampPos.equals(otherLamp) && isInLineOfSight(lampPos, otherLamp));
+    return getCurrentState().isLampIllegal(toCell(row, col));
   }
 
   @Override
   public boolean isClueSatisfied(int row, int col) {
     validatePosition(row, col, CellType.CLUE);
-    int clue = getActivePuzzle().getClue(row, col);
-    int count = 0;
-
-    int[][] adjacent = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
-    for (int[] dir : adjacent) {
-      int newRow = row + dir[0], newCol = col + dir[1];
-      if (newRow >= 0
-          && newRow < getActivePuzzle().getHeight()
-          && newCol >= 0
-          && newCol < getActivePuzzle().getWidth()
-          && getActivePuzzle().getCellType(newRow, newCol) == CellType.CORRIDOR
-          && isLamp(newRow, newCol)) {
-        count++;
-      }
-    }
-    return count == clue;
+    return getCurrentState().isClueSatisfied(toCell(row, col));
   }
 
   @Override
   public boolean isSolved() {
-    Puzzle puzzle = getActivePuzzle();
-    for (int row = 0; row < puzzle.getHeight(); row++) {
-      for (int col = 0; col < puzzle.getWidth(); col++) {
-        CellType type = puzzle.getCellType(row, col);
-        if (type == CellType.CORRIDOR && !isLit(row, col)) return false;
-        if (type == CellType.CLUE && !isClueSatisfied(row, col)) return false;
-        if (type == CellType.CORRIDOR && isLamp(row, col) && isLampIllegal(row, col)) return false;
-      }
+    return getCurrentState().isSolved();
+  }
+
+  @Override
+  public int getUnlitCount() {
+    return getCurrentState().getUnlitCount();
+  }
+
+  @Override
+  public int getUnsatisfiedClueCount() {
+    return getCurrentState().getUnsatisfiedClueCount();
+  }
+
+  @Override
+  public int getIllegalLampCount() {
+    return getCurrentState().getIllegalLampCount();
+  }
+
+  @Override
+  public CompletableFuture<Hint> getHint() {
+    HintFinder finder = hintFindersByPuzzle.get(puzzleIndex);
+    if (finder == null) {
+      finder = new HintFinder(getActivePuzzle(), getCurrentState(), ForkJoinPool.commonPool());
+      hintFindersByPuzzle.put(puzzleIndex, finder);
     }
-    return true;
+    return finder.getHint();
   }
 
   @Override
   public void resetPuzzle() {
-    getCurrentPuzzleLamps().clear();
-    notifyObservers();
+    getCurrentState().clear();
+    changed(ModelChange.Type.PUZZLE_RESET, -1, -1);
+  }
+
+  @Override
+  public LampSnapshot getLampSnapshot() {
+    return getCurrentState().getSnapshot();
+  }
+
+  @Override
+  public void restoreLampSnapshot(LampSnapshot snapshot) {
+    BoardState state = getCurrentState();
+    LampSnapshot current = state.getSnapshot();
+    validateSnapshot(state, snapshot);
+    beginBatch();
+    try {
+      LampSnapshot.forEachDifference(
+          current,
+          snapshot,
+          cell -> {
+            if (snapshot.contains(cell)) {
+              state.addLamp(cell);
+            } else {
+              state.removeLamp(cell);
+            }
+            changed(ModelChange.Type.BATCH, -1, -1);
+          });
+    } finally {
+      commitBatch();
+    }
   }
 
   @Override
@@ -178,8 +203,16 @@ public class ModelImpl implements Model {
     if (index < 0 || index >= puzzleLibrary.size()) {
       throw new IndexOutOfBoundsException("Invalid puzzle index");
     }
+    if (batchDepth > 0) {
+      // Observers will be told to re-read everything, so what was logged so far does not matter
+      getCurrentState().discardChanges();
+      puzzleIndex = index;
+      batchChanged = true;
+      batchSwitchedPuzzle = true;
+      return;
+    }
     puzzleIndex = index;
-    notifyObservers();
+    notifyObservers(ModelChange.puzzleSwitched());
   }
 
   @Override
@@ -187,6 +220,34 @@ public class ModelImpl implements Model {
     return puzzleLibrary.size();
   }
 
+  @Override
+  public int addPuzzle(Puzzle puzzle) {
+    if (puzzle == null) throw new IllegalArgumentException("Puzzle cannot be null");
+    puzzleLibrary.addPuzzle(puzzle);
+    return puzzleLibrary.size() - 1;
+  }
+
+  @Override
+  public void beginBatch() {
+    batchDepth++;
+  }
+
+  @Override
+  public void commitBatch() {
+    if (batchDepth == 0) {
+      throw new IllegalStateException("No batch to commit");
+    }
+    if (--batchDepth > 0 || !batchChanged) return;
+    batchChanged = false;
+    if (batchSwitchedPuzzle) {
+      batchSwitchedPuzzle = false;
+      getCurrentState().discardChanges();
+      notifyObservers(ModelChange.puzzleSwitched());
+    } else {
+      notifyObservers(getCurrentState().takeChange(ModelChange.Type.BATCH, -1, -1));
+    }
+  }
+
   @Override
   public void addObserver(ModelObserver observer) {
     observerList.add(observer);
@@ -197,9 +258,18 @@ public class ModelImpl implements Model {
     observerList.remove(observer);
   }
 
-  private void notifyObservers() {
+  /** Notifies observers of a change to the active puzzle, or holds it back until a batch ends */
+  private void changed(ModelChange.Type type, int row, int col) {
+    if (batchDepth > 0) {
+      batchChanged = true;
+      return;
+    }
+    notifyObservers(getCurrentState().takeChange(type, row, col));
+  }
+
+  private void notifyObservers(ModelChange change) {
     for (ModelObserver observer : observerList) {
-      observer.update(this);
+      observer.update(this, change);
     }
   }
 }
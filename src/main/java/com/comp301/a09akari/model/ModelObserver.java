@@ -3,4 +3,12 @@ package com.comp301.a09akari.model;
 public interface ModelObserver {
   /** When a model value is changed, the model calls update() on all active ModelObserver objects */
   void update(Model model);
+
+  /**
+   * Called instead of update(Model) by models which can describe what changed. Observers that only
+   * care about the latest state need not override it; the default forwards to update(Model)
+   */
+  default void update(Model model, ModelChange change) {
+    update(model);
+  }
 }
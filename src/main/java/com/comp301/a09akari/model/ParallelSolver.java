@@ -0,0 +1,85 @@
+package com.comp301.a09akari.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Solver that spreads the backtracking search over a ForkJoinPool. Each task explores its subtree
+ * depth-first exactly like BacktrackingSolver, but whenever the worker's queue runs low at a branch
+ * it forks the sibling branches as new tasks for idle workers to steal. All tasks share one
+ * SolutionCollector, so every branch stops as soon as enough solutions have been found.
+ */
+public class ParallelSolver implements Solver {
+  /** Workers keep forking branches while they have fewer than this many queued tasks */
+  private static final int SPLIT_THRESHOLD = 2;
+
+  private final ForkJoinPool pool;
+
+  /** Creates a solver running on the common ForkJoinPool */
+  public ParallelSolver() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  public ParallelSolver(ForkJoinPool pool) {
+    if (pool == null) {
+      throw new IllegalArgumentException("Pool cannot be null");
+    }
+    this.pool = pool;
+  }
+
+  @Override
+  public Solution solve(Puzzle puzzle) {
+    return search(puzzle, 1).getFirst();
+  }
+
+  @Override
+  public int countSolutions(Puzzle puzzle, int limit) {
+    return search(puzzle, limit).getCount();
+  }
+
+  private SolutionCollector search(Puzzle puzzle, int limit) {
+    if (puzzle == null) {
+      throw new IllegalArgumentException("Puzzle cannot be null");
+    }
+    SolutionCollector collector = new SolutionCollector(limit);
+    pool.invoke(new BranchTask(new SearchState(puzzle), collector, 0));
+    return collector;
+  }
+
+  private static class BranchTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final SearchState state;
+    private final SolutionCollector collector;
+    private final int failures;
+    private final List<BranchTask> forked;
+
+    BranchTask(SearchState state, SolutionCollector collector, int failures) {
+      this.state = state;
+      this.collector = collector;
+      this.failures = failures;
+      this.forked = new ArrayList<>();
+    }
+
+    @Override
+    protected void compute() {
+      DepthFirstSearch search =
+          new DepthFirstSearch(collector, failures) {
+            @Override
+            boolean offload(SearchState branch) {
+              if (getSurplusQueuedTaskCount() >= SPLIT_THRESHOLD) return false;
+              BranchTask task = new BranchTask(branch, collector, getFailures());
+              task.fork();
+              forked.add(task);
+              return true;
+            }
+          };
+      search.explore(state);
+      for (BranchTask task : forked) {
+        task.join();
+      }
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package com.comp301.a09akari.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Packed binary format for collections of puzzles. A file starts with a header (the magic number,
+ * the format version and the number of puzzles) followed by an index of count + 1 byte offsets,
+ * where offset i is the start of puzzle i and the last one is the end of the file. Each puzzle is
+ * its width and height as unsigned shorts followed by its cells in row-major order, packed 3 bits
+ * per cell using the same values as the int[][] boards given to PuzzleImpl. All numbers are
+ * big-endian, so the file can be read straight from a mapped ByteBuffer.
+ */
+public final class PuzzleFormat {
+  /** "AKRI" */
+  static final int MAGIC = 0x414b5249;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 12;
+  private static final int BITS_PER_CELL = 3;
+
+  private PuzzleFormat() {}
+
+  /** Returns true if the file starts with this format's magic number */
+  public static boolean isPuzzleFile(Path file) throws IOException {
+    try (InputStream in = Files.newInputStream(file)) {
+      byte[] magic = in.readNBytes(4);
+      return magic.length == 4 && ByteBuffer.wrap(magic).getInt() == MAGIC;
+    }
+  }
+
+  /** Writes the puzzles to the file, replacing anything already there */
+  public static void write(List<? extends Puzzle> puzzles, Path file) throws IOException {
+    try (OutputStream out = Files.newOutputStream(file)) {
+      write(puzzles, out);
+    }
+  }
+
+  /**
+   * Writes the puzzles to the stream, which is left open. Throws an IllegalArgumentException if the
+   * list or any puzzle in it is null, or if a puzzle is too large for the format
+   */
+  public static void write(List<? extends Puzzle> puzzles, OutputStream out) throws IOException {
+    if (puzzles == null) {
+      throw new IllegalArgumentException("Puzzles cannot be null");
+    }
+    for (Puzzle puzzle : puzzles) {
+      if (puzzle == null) {
+        throw new IllegalArgumentException("Puzzles cannot be null");
+      }
+      if (puzzle.getWidth() > 0xffff || puzzle.getHeight() > 0xffff) {
+        throw new IllegalArgumentException("Puzzle too large to store");
+      }
+    }
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(puzzles.size());
+    long offset = HEADER_SIZE + 8L * (puzzles.size() + 1);
+    for (Puzzle puzzle : puzzles) {
+      data.writeLong(offset);
+      offset += recordSize(puzzle.getWidth(), puzzle.getHeight());
+    }
+    data.writeLong(offset);
+
+    for (Puzzle puzzle : puzzles) {
+      int width = puzzle.getWidth();
+      int height = puzzle.getHeight();
+      data.writeShort(width);
+      data.writeShort(height);
+      byte[] values = PuzzleImpl.cellValues(puzzle);
+      byte[] cells = new byte[(int) packedSize(values.length)];
+      for (int cell = 0; cell < values.length; cell++) {
+        int bit = cell * BITS_PER_CELL;
+        int packed = values[cell] << (bit & 7);
+        cells[bit >> 3] |= (byte) packed;
+        if ((packed >> 8) != 0) cells[(bit >> 3) + 1] |= (byte) (packed >> 8);
+      }
+      data.write(cells);
+    }
+    data.flush();
+  }
+
+  /**
+   * Decodes the puzzle record of the given length starting at an absolute position of the buffer.
+   * Throws an IllegalStateException if the record does not fit in the buffer or its length does
+   * not match the board size it gives
+   */
+  static Puzzle read(ByteBuffer buffer, int position, long length) {
+    if (position < 0 || length < 4 || length > buffer.capacity() - position) {
+      throw new IllegalStateException("Corrupt puzzle record at " + position);
+    }
+    int width = Short.toUnsignedInt(buffer.getShort(position));
+    int height = Short.toUnsignedInt(buffer.getShort(position + 2));
+    if (recordSize(width, height) != length) {
+      throw new IllegalStateException("Corrupt puzzle record at " + position);
+    }
+    int start = position + 4;
+    int end = position + (int) length;
+    int[][] board = new int[height][width];
+    for (int r = 0; r < height; r++) {
+      for (int c = 0; c < width; c++) {
+        int bit = (r * width + c) * BITS_PER_CELL;
+        int index = start + (bit >> 3);
+        int packed = Byte.toUnsignedInt(buffer.get(index));
+        if (index + 1 < end) packed |= Byte.toUnsignedInt(buffer.get(index + 1)) << 8;
+        board[r][c] = (packed >> (bit & 7)) & 7;
+      }
+    }
+    return new PuzzleImpl(board);
+  }
+
+  private static long recordSize(int width, int height) {
+    return 4 + packedSize((long) width * height);
+  }
+
+  private static long packedSize(long cells) {
+    return (cells * BITS_PER_CELL + 7) / 8;
+  }
+}
@@ -0,0 +1,207 @@
+package com.comp301.a09akari.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates fresh puzzles with a unique solution. A board starts as randomly scattered walls with a
+ * random legal lamp placement lighting every corridor, and every wall numbered with the lamps next
+ * to it. While the puzzle has more than one solution, a corridor cell the solver could not decide
+ * is walled off and numbered, and any cells it leaves dark get lamps of their own. Clues are then
+ * removed in random order as long as the puzzle stays unique and no harder than asked for.
+ *
+ * <p>Puzzles are graded by how much deduction the solver needs: EASY puzzles fall to constraint
+ * propagation alone, MEDIUM ones also need failed-literal probing, and HARD ones need the solver to
+ * guess and backtrack.
+ */
+public class PuzzleGenerator {
+  public enum Difficulty {
+    EASY,
+    MEDIUM,
+    HARD,
+  }
+
+  private static final double WALL_DENSITY = 0.2;
+  /** Boards tried before settling for the puzzle found closest to the wanted difficulty */
+  private static final int MAX_ATTEMPTS = 8;
+  /** No new board is tried once this much time has gone, keeping 15x15 boards under 100 ms */
+  private static final long TIME_BUDGET_NANOS = 50_000_000L;
+
+  private final Random random;
+
+  public PuzzleGenerator() {
+    this(new Random());
+  }
+
+  /** Creates a generator producing the same sequence of puzzles for the same seed */
+  public PuzzleGenerator(long seed) {
+    this(new Random(seed));
+  }
+
+  private PuzzleGenerator(Random random) {
+    this.random = random;
+  }
+
+  /**
+   * Returns a new width x height puzzle with a unique solution, graded at the given difficulty if
+   * one is found within a few tries or the time budget and otherwise as close to it as found; small
+   * boards may not allow hard puzzles at all. Throws an IllegalArgumentException if either size is
+   * not positive or the difficulty is null
+   */
+  public Puzzle generate(int width, int height, Difficulty difficulty) {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("Width and height must be positive");
+    }
+    if (difficulty == null) {
+      throw new IllegalArgumentException("Difficulty cannot be null");
+    }
+    Puzzle best = null;
+    int bestDistance = Integer.MAX_VALUE;
+    long deadline = System.nanoTime() + TIME_BUDGET_NANOS;
+    for (int attempt = 0;
+        attempt < MAX_ATTEMPTS && (best == null || System.nanoTime() - deadline < 0);
+        attempt++) {
+      int[][] board = uniqueBoard(width, height);
+      removeClues(board, difficulty);
+      Puzzle puzzle = new PuzzleImpl(board);
+      int distance = Math.abs(grade(puzzle).ordinal() - difficulty.ordinal());
+      if (distance == 0) return puzzle;
+      if (distance < bestDistance) {
+        best = puzzle;
+        bestDistance = distance;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Grades a puzzle by the deductions needed to solve it. Puzzles without exactly one solution are
+   * graded HARD, as the solver cannot settle them without searching. Throws an
+   * IllegalArgumentException if the puzzle is null
+   */
+  public static Difficulty grade(Puzzle puzzle) {
+    if (puzzle == null) {
+      throw new IllegalArgumentException("Puzzle cannot be null");
+    }
+    SearchState state = new SearchState(puzzle);
+    if (state.propagate() && state.chooseBranchCell() < 0) return Difficulty.EASY;
+    if (state.probe() && state.chooseBranchCell() < 0) return Difficulty.MEDIUM;
+    return Difficulty.HARD;
+  }
+
+  /** Returns a board with a unique solution, with every wall numbered */
+  private int[][] uniqueBoard(int width, int height) {
+    int[][] board = new int[height][width];
+    for (int r = 0; r < height; r++) {
+      for (int c = 0; c < width; c++) {
+        board[r][c] = random.nextDouble() < WALL_DENSITY ? PuzzleImpl.WALL : PuzzleImpl.CORRIDOR;
+      }
+    }
+    boolean[] lamps = new boolean[width * height];
+    lightDarkCells(board, lamps);
+
+    BacktrackingSolver solver = new BacktrackingSolver();
+    while (true) {
+      numberWalls(board, lamps);
+      Puzzle puzzle = new PuzzleImpl(board);
+      if (solver.countSolutions(puzzle, 2) == 1) return board;
+
+      // Some other solution uses a cell our lamps leave empty; wall one such cell off
+      SearchState state = new SearchState(puzzle);
+      state.probe();
+      List<Integer> undecided = new ArrayList<>();
+      for (int cell = 0; cell < lamps.length; cell++) {
+        if (!lamps[cell] && state.isCandidate(cell)) undecided.add(cell);
+      }
+      int cell = undecided.get(random.nextInt(undecided.size()));
+      board[cell / width][cell % width] = PuzzleImpl.WALL;
+      lightDarkCells(board, lamps);
+    }
+  }
+
+  /**
+   * Removes clues from a unique, fully numbered board in random order, keeping each removal only
+   * if the puzzle stays unique and no harder than the target. Boards already too hard with every
+   * clue in place are left alone
+   */
+  private void removeClues(int[][] board, Difficulty target) {
+    if (grade(new PuzzleImpl(board)).compareTo(target) > 0) return;
+    int width = board[0].length;
+    List<Integer> clues = new ArrayList<>();
+    for (int cell = 0; cell < width * board.length; cell++) {
+      if (board[cell / width][cell % width] <= PuzzleImpl.MAX_CLUE) clues.add(cell);
+    }
+    Collections.shuffle(clues, random);
+
+    UniquenessChecker checker = new UniquenessChecker();
+    for (int cell : clues) {
+      int r = cell / width, c = cell % width;
+      int clue = board[r][c];
+      board[r][c] = PuzzleImpl.WALL;
+      Puzzle puzzle = new PuzzleImpl(board);
+      // A puzzle graded EASY or MEDIUM was solved by deduction alone, so it is unique already
+      Difficulty grade = grade(puzzle);
+      boolean keep =
+          grade.compareTo(target) <= 0
+              && (grade != Difficulty.HARD
+                  || checker.check(puzzle) == UniquenessChecker.Verdict.UNIQUE);
+      if (!keep) board[r][c] = clue;
+    }
+  }
+
+  /** Places lamps, in random order, on corridor cells until every corridor cell is lit */
+  private void lightDarkCells(int[][] board, boolean[] lamps) {
+    int width = board[0].length;
+    boolean[] lit = new boolean[lamps.length];
+    List<Integer> corridors = new ArrayList<>();
+    for (int cell = 0; cell < lamps.length; cell++) {
+      if (board[cell / width][cell % width] != PuzzleImpl.CORRIDOR) {
+        lamps[cell] = false;
+      } else {
+        corridors.add(cell);
+        if (lamps[cell]) light(board, lit, cell);
+      }
+    }
+    Collections.shuffle(corridors, random);
+    for (int cell : corridors) {
+      // Neither of a dark cell's segments holds a lamp, so a lamp here is always legal
+      if (!lit[cell]) {
+        lamps[cell] = true;
+        light(board, lit, cell);
+      }
+    }
+  }
+
+  private static void light(int[][] board, boolean[] lit, int lamp) {
+    int width = board[0].length;
+    int height = board.length;
+    int r = lamp / width, c = lamp % width;
+    lit[lamp] = true;
+    for (int[] d : new int[][] {{1, 0}, {-1, 0}, {0, 1}, {0, -1}}) {
+      for (int rr = r + d[0], cc = c + d[1];
+          rr >= 0 && rr < height && cc >= 0 && cc < width && board[rr][cc] == PuzzleImpl.CORRIDOR;
+          rr += d[0], cc += d[1]) {
+        lit[rr * width + cc] = true;
+      }
+    }
+  }
+
+  private static void numberWalls(int[][] board, boolean[] lamps) {
+    int width = board[0].length;
+    int height = board.length;
+    for (int r = 0; r < height; r++) {
+      for (int c = 0; c < width; c++) {
+        if (board[r][c] == PuzzleImpl.CORRIDOR) continue;
+        int cell = r * width + c;
+        int clue = 0;
+        if (r > 0 && lamps[cell - width]) clue++;
+        if (r < height - 1 && lamps[cell + width]) clue++;
+        if (c > 0 && lamps[cell - 1]) clue++;
+        if (c < width - 1 && lamps[cell + 1]) clue++;
+        board[r][c] = clue;
+      }
+    }
+  }
+}
@@ -1,56 +1,131 @@
 package com.comp301.a09akari.model;
 
+/**
+ * Puzzle stored as one flat, immutable byte array in row-major order, holding the same values as
+ * the int[][] board it was built from: 0 to 4 for clues, 5 for walls and 6 for corridors. The
+ * public accessors check their arguments; the package-private ones taking a flat cell index do
+ * not, and are meant for the model and solvers' inner loops.
+ */
 public class PuzzleImpl implements Puzzle {
-  private final int[][] board;
+  static final int MAX_CLUE = 4;
+  static final byte WALL = 5;
+  static final byte CORRIDOR = 6;
+  private static final CellType[] TYPES_BY_VALUE = {
+    CellType.CLUE,
+    CellType.CLUE,
+    CellType.CLUE,
+    CellType.CLUE,
+    CellType.CLUE,
+    CellType.WALL,
+    CellType.CORRIDOR
+  };
 
+  private final int width;
+  private final int height;
+  private final byte[] cells;
+  private final SegmentIndex segmentIndex;
+
+  /**
+   * Creates a puzzle from a copy of the given board. Throws an IllegalArgumentException if the
+   * board is null or empty, its rows differ in length, or it holds a value outside 0 to 6
+   */
   public PuzzleImpl(int[][] board) {
-    this.board = board;
+    if (board == null || board.length == 0 || board[0] == null || board[0].length == 0) {
+      throw new IllegalArgumentException("Board cannot be null or empty");
+    }
+    this.height = board.length;
+    this.width = board[0].length;
+    this.cells = new byte[width * height];
+    for (int r = 0; r < height; r++) {
+      if (board[r] == null || board[r].length != width) {
+        throw new IllegalArgumentException("Board rows must all have the same length");
+      }
+      for (int c = 0; c < width; c++) {
+        int cellValue = board[r][c];
+        if (cellValue < 0 || cellValue > CORRIDOR) {
+          throw new IllegalArgumentException("Invalid cell value: " + cellValue);
+        }
+        cells[r * width + c] = (byte) cellValue;
+      }
+    }
+    this.segmentIndex = new SegmentIndex(width, height, cells);
   }
 
   @Override
   public int getWidth() {
-    return board[0].length;
+    return width;
   }
 
   @Override
   public int getHeight() {
-    return board.length;
+    return height;
   }
 
   @Override
   public CellType getCellType(int r, int c) {
-    if (r < 0 || r >= getHeight() || c < 0 || c >= getWidth()) {
-      throw new IndexOutOfBoundsException("Row or column out of bounds");
-    }
-
-    int cellValue = board[r][c];
-    switch (cellValue) {
-      case 0:
-      case 1:
-      case 2:
-      case 3:
-      case 4:
-        return CellType.CLUE;
-      case 5:
-        return CellType.WALL;
-      case 6:
-        return CellType.CORRIDOR;
-      default:
-        throw new IllegalArgumentException("Invalid cell value: " + cellValue);
-    }
+    checkBounds(r, c);
+    return TYPES_BY_VALUE[cells[r * width + c]];
   }
 
   @Override
   public int getClue(int r, int c) {
-    if (r < 0 || r >= getHeight() || c < 0 || c >= getWidth()) {
-      throw new IndexOutOfBoundsException("Row or column out of bounds");
+    checkBounds(r, c);
+    int cellValue = cells[r * width + c];
+    if (cellValue > MAX_CLUE) {
+      throw new IllegalArgumentException("Cell at (" + r + ", " + c + ") is not a clue");
     }
+    return cellValue;
+  }
 
-    int cellValue = board[r][c];
-    if (cellValue >= 0 && cellValue <= 4) {
-      return cellValue;
-    } else {
-      throw new IllegalArgumentException("Cell at (" + r + ", " + c + ") is not a clue");
+  /** Returns the raw value of the cell at the given flat index, without checking it */
+  int getCellValue(int cell) {
+    return cells[cell];
+  }
+
+  /** Returns the type of the cell at the given flat index, without checking it */
+  CellType getCellType(int cell) {
+    return TYPES_BY_VALUE[cells[cell]];
+  }
+
+  /** Getter method for the corridor segments precomputed when this puzzle was constructed */
+  SegmentIndex getSegmentIndex() {
+    return segmentIndex;
+  }
+
+  /** Returns the type of cell a raw value stands for */
+  static CellType typeOf(int cellValue) {
+    return TYPES_BY_VALUE[cellValue];
+  }
+
+  /**
+   * Returns the raw values of the puzzle's cells in row-major order. For a PuzzleImpl this is its
+   * own array, which must not be modified
+   */
+  static byte[] cellValues(Puzzle puzzle) {
+    if (puzzle instanceof PuzzleImpl) {
+      return ((PuzzleImpl) puzzle).cells;
+    }
+    int width = puzzle.getWidth();
+    byte[] values = new byte[width * puzzle.getHeight()];
+    for (int cell = 0; cell < values.length; cell++) {
+      int r = cell / width, c = cell % width;
+      switch (puzzle.getCellType(r, c)) {
+        case CLUE:
+          values[cell] = (byte) puzzle.getClue(r, c);
+          break;
+        case WALL:
+          values[cell] = WALL;
+          break;
+        default:
+          values[cell] = CORRIDOR;
+      }
+    }
+    return values;
+  }
+
+  private void checkBounds(int r, int c) {
+    if (r < 0 || r >= height || c < 0 || c >= width) {
+      throw new IndexOutOfBoundsException("Row or column out of bounds");
     }
   }
 }
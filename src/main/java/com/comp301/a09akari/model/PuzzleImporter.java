@@ -0,0 +1,331 @@
+package com.comp301.a09akari.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Streaming reader for puzzle packs in the usual text notations. Two kinds of record are
+ * recognised, and may be mixed in one input:
+ *
+ * <ul>
+ *   <li>Game IDs in the form used by Simon Tatham's Light Up, one per line, such as {@code
+ *       7x7:b1dBc0gBa4g2Bc...}. The part before the colon gives the width and height; after it,
+ *       the letters a to z stand for runs of 1 to 26 empty cells, B for a wall and a digit for a
+ *       clue.
+ *   <li>Grid blocks, one line per row and separated by blank lines, where '.' or '-' is an empty
+ *       cell, '#' or 'X' a wall and a digit from 0 to 4 a clue. The digits 5 and 6 are also
+ *       accepted for walls and empty cells, as in the int[][] boards given to PuzzleImpl.
+ * </ul>
+ *
+ * <p>The input is read once, a character at a time, into records which are decoded in parallel a
+ * batch at a time while the next batch is read. At most two batches are held at once, so memory
+ * use does not depend on the size of the input. Puzzles are handed on in input order.
+ */
+public final class PuzzleImporter {
+  private static final int DEFAULT_BATCH_SIZE = 4096;
+  /** The most cells a game ID may describe */
+  private static final int MAX_CELLS = 1 << 24;
+  /** The most cells a single character of a game ID stands for, as the letter z */
+  private static final int RUN_LENGTH = 26;
+
+  private final int batchSize;
+
+  public PuzzleImporter() {
+    this(DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Creates an importer decoding batchSize records at a time. Throws an IllegalArgumentException
+   * if the batch size is not positive
+   */
+  public PuzzleImporter(int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be positive");
+    }
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Decodes a single record, either a game ID or a grid block. Throws an IllegalArgumentException
+   * if the record is malformed
+   */
+  public static Puzzle parse(String record) {
+    if (record == null) {
+      throw new IllegalArgumentException("Record cannot be null");
+    }
+    return record.indexOf(':') >= 0 ? parseGameId(record) : parseGrid(record);
+  }
+
+  /** Adds every puzzle read from the input to the library, returning how many were added */
+  public long importTo(Reader in, PuzzleLibrary library) throws IOException {
+    return importTo(in, library::addPuzzle);
+  }
+
+  /** Reads puzzles from an ASCII or UTF-8 channel, as importTo(Reader, Consumer) */
+  public long importTo(ReadableByteChannel in, Consumer<? super Puzzle> sink) throws IOException {
+    return importTo(Channels.newReader(in, StandardCharsets.UTF_8.newDecoder(), -1), sink);
+  }
+
+  /**
+   * Passes every puzzle read from the input to the sink, in input order, returning how many there
+   * were. The input is not closed. Throws an IOException naming the line a malformed record starts
+   * on; the puzzles before it will already have been passed on
+   */
+  public long importTo(Reader in, Consumer<? super Puzzle> sink) throws IOException {
+    if (in == null || sink == null) {
+      throw new IllegalArgumentException("Input and sink cannot be null");
+    }
+    RecordSplitter splitter = new RecordSplitter();
+    List<Record> batch = new ArrayList<>(batchSize);
+    CompletableFuture<List<Record>> inFlight = null;
+    long count = 0;
+
+    char[] buffer = new char[8192];
+    boolean more = true;
+    while (more) {
+      int read = in.read(buffer);
+      if (read >= 0) {
+        for (int i = 0; i < read; i++) {
+          splitter.accept(buffer[i]);
+        }
+      } else {
+        splitter.finish();
+        more = false;
+      }
+      for (Record record = splitter.poll(); record != null; record = splitter.poll()) {
+        batch.add(record);
+        if (batch.size() == batchSize) {
+          count += emit(inFlight, sink);
+          inFlight = decodeAsync(batch);
+          batch = new ArrayList<>(batchSize);
+        }
+      }
+    }
+    count += emit(inFlight, sink);
+    count += emit(decodeAsync(batch), sink);
+    return count;
+  }
+
+  private static CompletableFuture<List<Record>> decodeAsync(List<Record> batch) {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          batch.parallelStream().forEach(Record::decode);
+          return batch;
+        });
+  }
+
+  /**
+   * Waits for a decoded batch and passes its puzzles on, returning how many there were, up to the
+   * first malformed record
+   */
+  private static int emit(CompletableFuture<List<Record>> decoded, Consumer<? super Puzzle> sink)
+      throws IOException {
+    if (decoded == null) return 0;
+    List<Record> records = decoded.join();
+    for (Record record : records) {
+      if (record.error != null) {
+        throw new IOException(
+            "Malformed puzzle at line " + record.line + ": " + record.error.getMessage(),
+            record.error);
+      }
+      sink.accept(record.puzzle);
+    }
+    return records.size();
+  }
+
+  private static Puzzle parseGameId(String id) {
+    int colon = id.indexOf(':');
+    int x = id.indexOf('x');
+    if (x <= 0 || x > colon) {
+      throw new IllegalArgumentException("Game ID must start with WIDTHxHEIGHT:");
+    }
+    int width = parseSize(id, 0, x);
+    int height = parseSize(id, x + 1, colon);
+    // Checked before allocating, since the width and height alone could ask for gigabytes
+    long cells = (long) width * height;
+    if (cells > MAX_CELLS) {
+      throw new IllegalArgumentException("Puzzle too large");
+    }
+    if (cells > RUN_LENGTH * (id.length() - colon - 1L)) {
+      throw new IllegalArgumentException("Game ID describes too few cells");
+    }
+    int[][] board = new int[height][width];
+    int cell = 0;
+    for (int i = colon + 1; i < id.length(); i++) {
+      char ch = id.charAt(i);
+      if (ch >= 'a' && ch <= 'z') {
+        for (int run = ch - 'a' + 1; run > 0; run--) {
+          cell = place(board, cell, 6);
+        }
+      } else if (ch == 'B') {
+        cell = place(board, cell, 5);
+      } else if (ch >= '0' && ch <= '4') {
+        cell = place(board, cell, ch - '0');
+      } else if (!Character.isWhitespace(ch)) {
+        throw new IllegalArgumentException("Unexpected character in game ID: " + ch);
+      }
+    }
+    if (cell != width * height) {
+      throw new IllegalArgumentException("Game ID describes too few cells");
+    }
+    return new PuzzleImpl(board);
+  }
+
+  /** Parses the digits of a width or height, ignoring anything after them such as difficulty */
+  private static int parseSize(String id, int start, int end) {
+    int size = 0;
+    int i = start;
+    for (; i < end && id.charAt(i) >= '0' && id.charAt(i) <= '9'; i++) {
+      size = size * 10 + (id.charAt(i) - '0');
+      if (size > 0xffff) throw new IllegalArgumentException("Puzzle too large");
+    }
+    if (i == start || size == 0) {
+      throw new IllegalArgumentException("Game ID must start with WIDTHxHEIGHT:");
+    }
+    return size;
+  }
+
+  private static int place(int[][] board, int cell, int value) {
+    int width = board[0].length;
+    if (cell >= (long) width * board.length) {
+      throw new IllegalArgumentException("Game ID describes too many cells");
+    }
+    board[cell / width][cell % width] = value;
+    return cell + 1;
+  }
+
+  private static Puzzle parseGrid(String grid) {
+    List<int[]> rows = new ArrayList<>();
+    int start = 0;
+    while (start <= grid.length()) {
+      int end = grid.indexOf('\n', start);
+      if (end < 0) end = grid.length();
+      if (end > start) rows.add(parseRow(grid, start, end));
+      start = end + 1;
+    }
+    if (rows.isEmpty()) {
+      throw new IllegalArgumentException("Grid has no rows");
+    }
+    for (int[] row : rows) {
+      if (row.length != rows.get(0).length) {
+        throw new IllegalArgumentException("Grid rows differ in length");
+      }
+    }
+    return new PuzzleImpl(rows.toArray(new int[0][]));
+  }
+
+  private static int[] parseRow(String grid, int start, int end) {
+    int[] row = new int[end - start];
+    for (int i = start; i < end; i++) {
+      char ch = grid.charAt(i);
+      switch (ch) {
+        case '.':
+        case '-':
+        case '6':
+          row[i - start] = 6;
+          break;
+        case '#':
+        case 'X':
+        case '5':
+          row[i - start] = 5;
+          break;
+        default:
+          if (ch < '0' || ch > '4') {
+            throw new IllegalArgumentException("Unexpected character in grid: " + ch);
+          }
+          row[i - start] = ch - '0';
+      }
+    }
+    return row;
+  }
+
+  /** The text of one record and the line it starts on, and once decoded its puzzle or error */
+  private static final class Record {
+    private final String text;
+    private final long line;
+    private Puzzle puzzle;
+    private IllegalArgumentException error;
+
+    Record(String text, long line) {
+      this.text = text;
+      this.line = line;
+    }
+
+    void decode() {
+      try {
+        puzzle = parse(text);
+      } catch (IllegalArgumentException e) {
+        error = e;
+      }
+    }
+  }
+
+  /**
+   * Splits a stream of characters into records. Game IDs end with their line; grid rows are
+   * gathered until a blank line, a game ID or the end of the input. Surrounding whitespace on
+   * every line is ignored. Completed records queue up until polled
+   */
+  private static final class RecordSplitter {
+    private final StringBuilder lineText = new StringBuilder();
+    private final StringBuilder block = new StringBuilder();
+    private final ArrayDeque<Record> ready = new ArrayDeque<>();
+    private long line = 1;
+    private long blockLine;
+
+    void accept(char ch) {
+      if (ch == '\n') {
+        endLine();
+        line++;
+      } else if (ch != '\r') {
+        lineText.append(ch);
+      }
+    }
+
+    /** Ends the input, completing whatever record is still open */
+    void finish() {
+      endLine();
+      endBlock();
+    }
+
+    /** Returns the oldest completed record not yet polled, or null if there is none */
+    Record poll() {
+      return ready.poll();
+    }
+
+    private void endLine() {
+      int start = 0;
+      int end = lineText.length();
+      while (start < end && Character.isWhitespace(lineText.charAt(start))) start++;
+      while (end > start && Character.isWhitespace(lineText.charAt(end - 1))) end--;
+
+      if (start == end) {
+        endBlock();
+      } else if (lineText.indexOf(":") >= 0) {
+        endBlock();
+        ready.add(new Record(lineText.substring(start, end), line));
+      } else {
+        if (block.length() == 0) {
+          blockLine = line;
+        } else {
+          block.append('\n');
+        }
+        block.append(lineText, start, end);
+      }
+      lineText.setLength(0);
+    }
+
+    private void endBlock() {
+      if (block.length() == 0) return;
+      ready.add(new Record(block.toString(), blockLine));
+      block.setLength(0);
+    }
+  }
+}
@@ -5,9 +5,19 @@ import java.util.List;
 
 public class PuzzleLibraryImpl implements PuzzleLibrary {
   private final List<Puzzle> puzzles;
+  private final UniquenessChecker validator;
 
   public PuzzleLibraryImpl() {
+    this(null);
+  }
+
+  /**
+   * Creates a library which only accepts puzzles the given checker finds to have exactly one
+   * solution. Passing null disables validation
+   */
+  public PuzzleLibraryImpl(UniquenessChecker validator) {
     this.puzzles = new ArrayList<>();
+    this.validator = validator;
   }
 
   @Override
@@ -15,9 +25,45 @@ public class PuzzleLibraryImpl implements PuzzleLibrary {
     if (puzzle == null) {
       throw new IllegalArgumentException("Cannot add null Puzzle to the library");
     }
+    if (validator != null) {
+      UniquenessChecker.Verdict verdict = validator.check(puzzle);
+      if (verdict != UniquenessChecker.Verdict.UNIQUE) {
+        throw new IllegalArgumentException("Puzzle rejected by validation: " + verdict);
+      }
+    }
     puzzles.add(puzzle);
   }
 
+  /**
+   * Adds every puzzle in the list, validating them in parallel if this library has a validator.
+   * Puzzles that fail validation are skipped rather than rejecting the whole batch. Returns the
+   * number of puzzles added. Throws an IllegalArgumentException if the list or any puzzle in it is
+   * null
+   */
+  public int addPuzzles(List<Puzzle> batch) {
+    if (batch == null) {
+      throw new IllegalArgumentException("Cannot add null Puzzle to the library");
+    }
+    for (Puzzle puzzle : batch) {
+      if (puzzle == null) {
+        throw new IllegalArgumentException("Cannot add null Puzzle to the library");
+      }
+    }
+    if (validator == null) {
+      puzzles.addAll(batch);
+      return batch.size();
+    }
+    List<UniquenessChecker.Verdict> verdicts = validator.checkAll(batch);
+    int added = 0;
+    for (int i = 0; i < batch.size(); i++) {
+      if (verdicts.get(i) == UniquenessChecker.Verdict.UNIQUE) {
+        puzzles.add(batch.get(i));
+        added++;
+      }
+    }
+    return added;
+  }
+
   @Override
   public Puzzle getPuzzle(int index) {
     return puzzles.get(index);
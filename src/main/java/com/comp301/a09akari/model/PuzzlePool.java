@@ -0,0 +1,70 @@
+package com.comp301.a09akari.model;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Puzzles generated ahead of time on a background thread, so that asking for a fresh puzzle never
+ * waits for the generator. The thread keeps the pool topped up to its capacity and sleeps while it
+ * is full. It is a daemon thread, so an open pool does not keep the application running.
+ */
+public class PuzzlePool {
+  private final PuzzleGenerator generator;
+  private final int width;
+  private final int height;
+  private final PuzzleGenerator.Difficulty difficulty;
+  private final BlockingQueue<Puzzle> ready;
+  private final Thread worker;
+
+  /**
+   * Starts filling a pool of up to capacity width x height puzzles at the given difficulty. Throws
+   * an IllegalArgumentException if the generator or difficulty is null, or either size or the
+   * capacity is not positive
+   */
+  public PuzzlePool(
+      PuzzleGenerator generator,
+      int width,
+      int height,
+      PuzzleGenerator.Difficulty difficulty,
+      int capacity) {
+    if (generator == null || difficulty == null) {
+      throw new IllegalArgumentException("Generator and difficulty cannot be null");
+    }
+    if (width < 1 || height < 1 || capacity < 1) {
+      throw new IllegalArgumentException("Sizes and capacity must be positive");
+    }
+    this.generator = generator;
+    this.width = width;
+    this.height = height;
+    this.difficulty = difficulty;
+    this.ready = new ArrayBlockingQueue<>(capacity);
+    this.worker = new Thread(this::fill, "puzzle-pool");
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  /** Takes a generated puzzle out of the pool, or returns null at once if none is ready yet */
+  public Puzzle poll() {
+    return ready.poll();
+  }
+
+  /** Returns the number of puzzles ready to be taken */
+  public int getReadyCount() {
+    return ready.size();
+  }
+
+  /** Stops the background thread; puzzles already generated can still be taken */
+  public void shutdown() {
+    worker.interrupt();
+  }
+
+  private void fill() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        ready.put(generator.generate(width, height, difficulty));
+      }
+    } catch (InterruptedException e) {
+      // Shut down while waiting for room in the pool
+    }
+  }
+}
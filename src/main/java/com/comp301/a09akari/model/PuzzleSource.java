@@ -0,0 +1,13 @@
+package com.comp301.a09akari.model;
+
+/** A fixed, indexed collection of puzzles which are only built when asked for */
+public interface PuzzleSource {
+  /** Returns the number of puzzles this source provides */
+  int size();
+
+  /**
+   * Builds the puzzle at the given index, which may be expensive. Throws an
+   * IndexOutOfBoundsException if the index is outside the bounds of the source
+   */
+  Puzzle load(int index);
+}
@@ -0,0 +1,54 @@
+package com.comp301.a09akari.model;
+
+/**
+ * Solver that encodes the puzzle as CNF (see CnfEncoding) and hands it to an embedded CDCL SAT
+ * solver. Clause learning lets it recover from early mistakes that send plain backtracking into
+ * exponential thrashing, at the cost of building the formula up front. Further solutions are
+ * enumerated by adding a clause that blocks each lamp placement already found.
+ */
+public class SatSolver implements Solver {
+  @Override
+  public Solution solve(Puzzle puzzle) {
+    CnfEncoding encoding = CnfEncoding.of(puzzle);
+    CdclSolver sat = load(encoding);
+    return sat.solve() ? encoding.decode(sat.getModel()) : null;
+  }
+
+  @Override
+  public int countSolutions(Puzzle puzzle, int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("Limit must be positive");
+    }
+    CnfEncoding encoding = CnfEncoding.of(puzzle);
+    CdclSolver sat = load(encoding);
+    int count = 0;
+    while (count < limit && sat.solve()) {
+      count++;
+      sat.addClause(blockingClause(encoding, sat.getModel()));
+    }
+    return count;
+  }
+
+  private static CdclSolver load(CnfEncoding encoding) {
+    CdclSolver sat = new CdclSolver(encoding.getVariableCount());
+    for (int[] clause : encoding.getClauses()) {
+      sat.addClause(clause);
+    }
+    return sat;
+  }
+
+  /** Returns a clause ruling out exactly the lamp placement of the given assignment */
+  private static int[] blockingClause(CnfEncoding encoding, boolean[] assignment) {
+    int count = 0;
+    for (int cell = 0; cell < encoding.getCellCount(); cell++) {
+      if (encoding.getCellVariable(cell) != 0) count++;
+    }
+    int[] clause = new int[count];
+    int i = 0;
+    for (int cell = 0; cell < encoding.getCellCount(); cell++) {
+      int variable = encoding.getCellVariable(cell);
+      if (variable != 0) clause[i++] = assignment[variable] ? -variable : variable;
+    }
+    return clause;
+  }
+}
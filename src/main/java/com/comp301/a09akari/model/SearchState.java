@@ -0,0 +1,299 @@
+package com.comp301.a09akari.model;
+
+import java.util.Arrays;
+
+/**
+ * One node of a solver's search tree: the lamps placed so far, the cells they light, and the
+ * corridor cells ruled out as lamp positions. A corridor cell that is neither lit nor ruled out is
+ * a candidate, and the number of candidates in every row and column segment is kept current.
+ *
+ * <p>Constraint propagation is driven by a worklist of clue cells and segments whose candidates
+ * changed. A clue needing no more lamps rules out its remaining neighbours, a clue needing exactly
+ * as many lamps as it has candidate neighbours forces them all, and a dark cell that only one
+ * candidate can still light forces a lamp there. States are copied, never undone, when branching.
+ */
+final class SearchState {
+  private final SegmentIndex segments;
+  private final LampBitSet lamps;
+  private final LampBitSet lit;
+  private final LampBitSet blocked;
+  private final int[] rowCandidates;
+  private final int[] colCandidates;
+
+  private final LampBitSet queued;
+  private int[] worklist;
+  private int worklistSize;
+  private boolean failed;
+
+  /** Creates the root state of a search over the given puzzle, before any propagation */
+  SearchState(Puzzle puzzle) {
+    this.segments = SegmentIndex.of(puzzle);
+    int cells = segments.getCellCount();
+    this.lamps = new LampBitSet(cells);
+    this.lit = new LampBitSet(cells);
+    this.blocked = new LampBitSet(cells);
+    this.rowCandidates = new int[segments.getRowSegmentCount()];
+    this.colCandidates = new int[segments.getColSegmentCount()];
+    for (int cell = 0; cell < cells; cell++) {
+      if (segments.isCorridor(cell)) {
+        rowCandidates[segments.getRowSegment(cell)]++;
+        colCandidates[segments.getColSegment(cell)]++;
+      }
+    }
+
+    this.queued = new LampBitSet(cells + rowCandidates.length + colCandidates.length);
+    this.worklist = new int[64];
+    for (int cell = 0; cell < cells; cell++) {
+      if (segments.getClue(cell) >= 0) enqueue(cell);
+    }
+    for (int segment = 0; segment < rowCandidates.length; segment++) {
+      enqueue(cells + segment);
+    }
+    for (int segment = 0; segment < colCandidates.length; segment++) {
+      enqueue(cells + rowCandidates.length + segment);
+    }
+  }
+
+  private SearchState(SearchState other) {
+    this.segments = other.segments;
+    this.lamps = other.lamps.copy();
+    this.lit = other.lit.copy();
+    this.blocked = other.blocked.copy();
+    this.rowCandidates = other.rowCandidates.clone();
+    this.colCandidates = other.colCandidates.clone();
+    this.queued = other.queued.copy();
+    this.worklist = Arrays.copyOf(other.worklist, Math.max(64, other.worklistSize));
+    this.worklistSize = other.worklistSize;
+    this.failed = other.failed;
+  }
+
+  /** Returns an independent copy of this state to branch from */
+  SearchState copy() {
+    return new SearchState(this);
+  }
+
+  SegmentIndex getSegments() {
+    return segments;
+  }
+
+  boolean isCandidate(int cell) {
+    return segments.isCorridor(cell) && !blocked.get(cell);
+  }
+
+  /** Places a lamp on a candidate cell, returning false if the cell is not a candidate */
+  boolean placeLamp(int cell) {
+    if (!isCandidate(cell)) return false;
+    lamps.set(cell);
+    int rowSegment = segments.getRowSegment(cell);
+    int rowEnd = segments.getRowSegmentEnd(rowSegment);
+    for (int other = segments.getRowSegmentStart(rowSegment); other < rowEnd; other++) {
+      lit.set(other);
+      block(other);
+    }
+    int colSegment = segments.getColSegment(cell);
+    int colEnd = segments.getColSegmentEnd(colSegment);
+    for (int other = segments.getColSegmentStart(colSegment);
+        other < colEnd;
+        other += segments.getWidth()) {
+      lit.set(other);
+      block(other);
+    }
+    return true;
+  }
+
+  /** Rules the cell out as a lamp position */
+  void forbid(int cell) {
+    block(cell);
+  }
+
+  /**
+   * Applies the propagation rules until nothing more follows, returning false if the state turned
+   * out to be contradictory
+   */
+  boolean propagate() {
+    int cells = segments.getCellCount();
+    int rowSegments = rowCandidates.length;
+    while (!failed && worklistSize > 0) {
+      int item = worklist[--worklistSize];
+      queued.clear(item);
+      if (item < cells) {
+        checkClue(item);
+      } else if (item < cells + rowSegments) {
+        checkRowSegment(item - cells);
+      } else {
+        checkColSegment(item - cells - rowSegments);
+      }
+    }
+    return !failed;
+  }
+
+  /**
+   * Failed-literal probing: tentatively places a lamp on every candidate next to a clue and rules
+   * out each one whose propagation fails, repeating until nothing changes. Much more expensive than
+   * propagate(), but it catches the clue interactions that otherwise send the search thrashing.
+   * Returns false if the state turned out to be contradictory
+   */
+  boolean probe() {
+    boolean changed = true;
+    while (changed && propagate()) {
+      changed = false;
+      for (int cell = 0; cell < segments.getCellCount(); cell++) {
+        if (!isCandidate(cell) || !isNextToClue(cell)) continue;
+        SearchState trial = copy();
+        trial.placeLamp(cell);
+        if (!trial.propagate()) {
+          block(cell);
+          changed = true;
+        }
+      }
+    }
+    return !failed;
+  }
+
+  /**
+   * Returns the dark cell with the fewest candidates able to light it, or -1 if every corridor
+   * cell is lit. Should only be called on a propagated, consistent state
+   */
+  int chooseBranchCell() {
+    int best = -1;
+    int bestCount = Integer.MAX_VALUE;
+    for (int cell = 0; cell < segments.getCellCount(); cell++) {
+      if (segments.isCorridor(cell) && !lit.get(cell)) {
+        int count = countCandidatesLighting(cell);
+        if (count < bestCount) {
+          best = cell;
+          bestCount = count;
+          if (count <= 2) break;
+        }
+      }
+    }
+    return best;
+  }
+
+  /** Returns every candidate cell whose lamp would light the given cell */
+  int[] candidatesLighting(int cell) {
+    int[] candidates = new int[countCandidatesLighting(cell)];
+    int count = 0;
+    int rowSegment = segments.getRowSegment(cell);
+    int rowEnd = segments.getRowSegmentEnd(rowSegment);
+    for (int other = segments.getRowSegmentStart(rowSegment); other < rowEnd; other++) {
+      if (isCandidate(other)) candidates[count++] = other;
+    }
+    int colSegment = segments.getColSegment(cell);
+    int colEnd = segments.getColSegmentEnd(colSegment);
+    for (int other = segments.getColSegmentStart(colSegment);
+        other < colEnd;
+        other += segments.getWidth()) {
+      if (other != cell && isCandidate(other)) candidates[count++] = other;
+    }
+    return candidates;
+  }
+
+  /** Returns the lamps placed so far as a Solution; only meaningful once the state is complete */
+  Solution toSolution() {
+    return new Solution(segments.getWidth(), segments.getHeight(), lamps);
+  }
+
+  private int countCandidatesLighting(int cell) {
+    return rowCandidates[segments.getRowSegment(cell)]
+        + colCandidates[segments.getColSegment(cell)]
+        - (isCandidate(cell) ? 1 : 0);
+  }
+
+  private boolean isNextToClue(int cell) {
+    int width = segments.getWidth();
+    int row = cell / width, col = cell % width;
+    return (row > 0 && segments.getClue(cell - width) > 0)
+        || (row < segments.getHeight() - 1 && segments.getClue(cell + width) > 0)
+        || (col > 0 && segments.getClue(cell - 1) > 0)
+        || (col < width - 1 && segments.getClue(cell + 1) > 0);
+  }
+
+  private void block(int cell) {
+    if (!segments.isCorridor(cell) || !blocked.set(cell)) return;
+    int cells = segments.getCellCount();
+    int rowSegment = segments.getRowSegment(cell);
+    int colSegment = segments.getColSegment(cell);
+    rowCandidates[rowSegment]--;
+    colCandidates[colSegment]--;
+    enqueue(cells + rowSegment);
+    enqueue(cells + rowCandidates.length + colSegment);
+
+    int width = segments.getWidth();
+    int row = cell / width, col = cell % width;
+    if (row > 0 && segments.getClue(cell - width) >= 0) enqueue(cell - width);
+    if (row < segments.getHeight() - 1 && segments.getClue(cell + width) >= 0) {
+      enqueue(cell + width);
+    }
+    if (col > 0 && segments.getClue(cell - 1) >= 0) enqueue(cell - 1);
+    if (col < width - 1 && segments.getClue(cell + 1) >= 0) enqueue(cell + 1);
+  }
+
+  private void enqueue(int item) {
+    if (!queued.set(item)) return;
+    if (worklistSize == worklist.length) {
+      worklist = Arrays.copyOf(worklist, worklistSize * 2);
+    }
+    worklist[worklistSize++] = item;
+  }
+
+  private void checkClue(int clue) {
+    int width = segments.getWidth();
+    int row = clue / width, col = clue % width;
+    int[] neighbours = new int[4];
+    int count = 0;
+    if (row > 0) neighbours[count++] = clue - width;
+    if (row < segments.getHeight() - 1) neighbours[count++] = clue + width;
+    if (col > 0) neighbours[count++] = clue - 1;
+    if (col < width - 1) neighbours[count++] = clue + 1;
+
+    int needed = segments.getClue(clue);
+    int candidates = 0;
+    for (int i = 0; i < count; i++) {
+      if (lamps.get(neighbours[i])) {
+        needed--;
+      } else if (isCandidate(neighbours[i])) {
+        candidates++;
+      }
+    }
+    if (needed < 0 || needed > candidates) {
+      failed = true;
+    } else if (candidates > 0 && (needed == 0 || needed == candidates)) {
+      for (int i = 0; i < count; i++) {
+        if (!isCandidate(neighbours[i])) continue;
+        if (needed == 0) {
+          block(neighbours[i]);
+        } else {
+          placeLamp(neighbours[i]);
+        }
+      }
+    }
+  }
+
+  private void checkRowSegment(int segment) {
+    int end = segments.getRowSegmentEnd(segment);
+    for (int cell = segments.getRowSegmentStart(segment); cell < end && !failed; cell++) {
+      checkDarkCell(cell);
+    }
+  }
+
+  private void checkColSegment(int segment) {
+    int end = segments.getColSegmentEnd(segment);
+    for (int cell = segments.getColSegmentStart(segment);
+        cell < end && !failed;
+        cell += segments.getWidth()) {
+      checkDarkCell(cell);
+    }
+  }
+
+  /** Fails if nothing can light the cell any more, and forces the lamp if only one candidate can */
+  private void checkDarkCell(int cell) {
+    if (lit.get(cell)) return;
+    int count = countCandidatesLighting(cell);
+    if (count == 0) {
+      failed = true;
+    } else if (count == 1) {
+      placeLamp(candidatesLighting(cell)[0]);
+    }
+  }
+}
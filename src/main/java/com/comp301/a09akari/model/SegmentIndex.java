@@ -0,0 +1,167 @@
+package com.comp301.a09akari.model;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed corridor segments of a puzzle. A row segment is a maximal horizontal run of CORRIDOR
+ * cells and a column segment is a maximal vertical run of them. Two corridor cells can see each
+ * other exactly when they share a row segment or a column segment. Cells are addressed by their
+ * flat index row * width + col. The index also keeps the puzzle's raw cell values, so engine code
+ * holding one can look up clues without going back to the Puzzle.
+ */
+final class SegmentIndex {
+  private final int width;
+  private final int height;
+  private final byte[] values;
+  private final int[] rowSegment;
+  private final int[] colSegment;
+  private final int[] rowSegmentStart;
+  private final int[] rowSegmentEnd;
+  private final int[] colSegmentStart;
+  private final int[] colSegmentEnd;
+
+  /** Builds the index from raw cell values as PuzzleImpl stores them, keeping them uncopied */
+  SegmentIndex(int width, int height, byte[] values) {
+    this.width = width;
+    this.height = height;
+    this.values = values;
+    int cells = width * height;
+    this.rowSegment = new int[cells];
+    this.colSegment = new int[cells];
+
+    boolean[] corridor = new boolean[cells];
+    for (int cell = 0; cell < cells; cell++) {
+      corridor[cell] = values[cell] == PuzzleImpl.CORRIDOR;
+    }
+
+    // Each segment has at least one cell, so cells bounds the number of segments in either axis
+    int[] starts = new int[cells];
+    int[] ends = new int[cells];
+    int count = 0;
+    for (int r = 0; r < height; r++) {
+      for (int c = 0; c < width; c++) {
+        int cell = r * width + c;
+        if (!corridor[cell]) {
+          rowSegment[cell] = -1;
+        } else if (c > 0 && corridor[cell - 1]) {
+          rowSegment[cell] = rowSegment[cell - 1];
+          ends[rowSegment[cell]] = cell + 1;
+        } else {
+          rowSegment[cell] = count;
+          starts[count] = cell;
+          ends[count] = cell + 1;
+          count++;
+        }
+      }
+    }
+    this.rowSegmentStart = Arrays.copyOf(starts, count);
+    this.rowSegmentEnd = Arrays.copyOf(ends, count);
+
+    count = 0;
+    for (int c = 0; c < width; c++) {
+      for (int r = 0; r < height; r++) {
+        int cell = r * width + c;
+        if (!corridor[cell]) {
+          colSegment[cell] = -1;
+        } else if (r > 0 && corridor[cell - width]) {
+          colSegment[cell] = colSegment[cell - width];
+          ends[colSegment[cell]] = cell + width;
+        } else {
+          colSegment[cell] = count;
+          starts[count] = cell;
+          ends[count] = cell + width;
+          count++;
+        }
+      }
+    }
+    this.colSegmentStart = Arrays.copyOf(starts, count);
+    this.colSegmentEnd = Arrays.copyOf(ends, count);
+  }
+
+  /**
+   * Returns the segment index of the given puzzle, reusing the one PuzzleImpl builds at
+   * construction and building a fresh one for any other implementation
+   */
+  static SegmentIndex of(Puzzle puzzle) {
+    if (puzzle instanceof PuzzleImpl) {
+      return ((PuzzleImpl) puzzle).getSegmentIndex();
+    }
+    return new SegmentIndex(puzzle.getWidth(), puzzle.getHeight(), PuzzleImpl.cellValues(puzzle));
+  }
+
+  int getWidth() {
+    return width;
+  }
+
+  int getHeight() {
+    return height;
+  }
+
+  int getCellCount() {
+    return rowSegment.length;
+  }
+
+  /** Returns the flat index of the cell at row r, column c */
+  int cellIndex(int r, int c) {
+    return r * width + c;
+  }
+
+  boolean isCorridor(int cell) {
+    return rowSegment[cell] >= 0;
+  }
+
+  /** Returns the type of the cell */
+  CellType getCellType(int cell) {
+    return PuzzleImpl.typeOf(values[cell]);
+  }
+
+  /** Returns the value of the clue at the cell, or -1 if the cell is not a CLUE */
+  int getClue(int cell) {
+    int value = values[cell];
+    return value <= PuzzleImpl.MAX_CLUE ? value : -1;
+  }
+
+  /** Returns the row segment containing the cell, or -1 if the cell is not a CORRIDOR */
+  int getRowSegment(int cell) {
+    return rowSegment[cell];
+  }
+
+  /** Returns the column segment containing the cell, or -1 if the cell is not a CORRIDOR */
+  int getColSegment(int cell) {
+    return colSegment[cell];
+  }
+
+  int getRowSegmentCount() {
+    return rowSegmentStart.length;
+  }
+
+  int getColSegmentCount() {
+    return colSegmentStart.length;
+  }
+
+  /** Flat index of the first cell of a row segment; its cells are consecutive up to the end */
+  int getRowSegmentStart(int segment) {
+    return rowSegmentStart[segment];
+  }
+
+  /** Exclusive flat end index of a row segment */
+  int getRowSegmentEnd(int segment) {
+    return rowSegmentEnd[segment];
+  }
+
+  /** Flat index of the first cell of a column segment; its cells are width apart up to the end */
+  int getColSegmentStart(int segment) {
+    return colSegmentStart[segment];
+  }
+
+  /** Exclusive flat end index of a column segment */
+  int getColSegmentEnd(int segment) {
+    return colSegmentEnd[segment];
+  }
+
+  /** Returns true if both cells are corridors with an unobstructed straight line between them */
+  boolean canSee(int cellA, int cellB) {
+    return rowSegment[cellA] >= 0
+        && (rowSegment[cellA] == rowSegment[cellB] || colSegment[cellA] == colSegment[cellB]);
+  }
+}
@@ -0,0 +1,411 @@
+package com.comp301.a09akari.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of the lamp changes made in a SessionStore, so that players' games survive a
+ * restart. Each change is a 16 byte entry naming the player, the puzzle and what happened to it.
+ * Entries are buffered in memory and written by sync(): whichever thread finds no write in
+ * progress writes everything buffered so far as one checksummed frame and forces it to disk, while
+ * threads that arrive meanwhile wait and are covered by the next frame, so many players' changes
+ * share each force.
+ *
+ * <p>checkpoint() starts a new log and folds the previous snapshot and logs into a new snapshot of
+ * every player's SessionRecord, after which they are deleted. Opening a journal loads the latest
+ * snapshot and replays only the logs written since, dropping a frame torn by a crash. Replaying an
+ * entry twice leaves the same state as replaying it once, so a snapshot may safely include changes
+ * that are also in the log after it.
+ *
+ * <p>The directory holds snapshot-N.dat, the state before log N, and journal-N.log files, and
+ * should not be shared with anything else.
+ */
+public class SessionJournal implements Closeable {
+  static final int LAMP_ADDED = 0;
+  static final int LAMP_REMOVED = 1;
+  static final int PUZZLE_RESET = 2;
+  static final int PUZZLE_SWITCHED = 3;
+  static final int SESSION_REMOVED = 4;
+
+  private static final int ENTRY_SIZE = 16;
+  private static final int FRAME_HEADER_SIZE = 8;
+  private static final int SNAPSHOT_MAGIC = 0x414b534e;
+  private static final int SNAPSHOT_VERSION = 1;
+  private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d+)\\.dat");
+  private static final Pattern LOG_NAME = Pattern.compile("journal-(\\d+)\\.log");
+
+  private final Path directory;
+  private final Object lock;
+  private final Object checkpointLock;
+  private Map<Long, SessionRecord> recovered;
+
+  // Guarded by lock
+  private FileChannel log;
+  private int generation;
+  private ByteBuffer pending;
+  private ByteBuffer spare;
+  private long appendedCount;
+  private long durableCount;
+  private boolean writing;
+  private IOException failure;
+
+  /**
+   * Opens the journal in the directory, creating it if needed, and recovers the sessions it holds.
+   * Throws an IOException if the directory cannot be used or a snapshot in it is corrupt
+   */
+  public SessionJournal(Path directory) throws IOException {
+    if (directory == null) throw new IllegalArgumentException("Directory cannot be null");
+    this.directory = Files.createDirectories(directory);
+    this.lock = new Object();
+    this.checkpointLock = new Object();
+    this.pending = ByteBuffer.allocate(4096);
+    this.spare = ByteBuffer.allocate(4096);
+
+    TreeMap<Integer, Path> snapshots = new TreeMap<>();
+    TreeMap<Integer, Path> logs = new TreeMap<>();
+    list(snapshots, logs);
+    int base = snapshots.isEmpty() ? 0 : snapshots.lastKey();
+    Map<Long, SessionRecord> sessions =
+        snapshots.isEmpty() ? new HashMap<>() : readSnapshot(snapshots.lastEntry().getValue());
+    for (Map.Entry<Integer, Path> entry : logs.tailMap(base).entrySet()) {
+      long validEnd = replay(entry.getValue(), sessions);
+      try (FileChannel channel = FileChannel.open(entry.getValue(), StandardOpenOption.WRITE)) {
+        // Drop whatever a crash left after the last whole frame
+        if (channel.size() > validEnd) channel.truncate(validEnd);
+      }
+    }
+    this.recovered = sessions;
+    this.generation = Math.max(base, logs.isEmpty() ? 0 : logs.lastKey());
+    this.log = openLog(generation);
+    deleteBefore(base);
+  }
+
+  /**
+   * Returns the sessions recovered when the journal was opened, keyed by player, and forgets them.
+   * Later calls return an empty map
+   */
+  Map<Long, SessionRecord> takeRecoveredSessions() {
+    Map<Long, SessionRecord> sessions = recovered;
+    recovered = new HashMap<>();
+    return sessions;
+  }
+
+  /**
+   * Buffers the entries for a player, given as pairs of a puzzle index and an entry() action, so
+   * that they reach the log in the same frame. Returns the count sync() must reach for them to be
+   * durable
+   */
+  long append(long playerId, int[] entries, int length) {
+    synchronized (lock) {
+      int bytes = length / 2 * ENTRY_SIZE;
+      if (pending.remaining() < bytes) {
+        ByteBuffer grown =
+            ByteBuffer.allocate(Math.max(2 * pending.capacity(), pending.position() + bytes));
+        pending.flip();
+        pending = grown.put(pending);
+      }
+      for (int i = 0; i + 1 < length; i += 2) {
+        pending.putLong(playerId).putInt(entries[i]).putInt(entries[i + 1]);
+      }
+      appendedCount += length / 2;
+      return appendedCount;
+    }
+  }
+
+  /** Returns the action of an entry of the given kind; only lamp changes name a cell */
+  static int entry(int kind, int cell) {
+    return cell << 3 | kind;
+  }
+
+  /** Makes every entry appended so far durable, waiting for or joining a write in progress */
+  public void sync() throws IOException {
+    long target;
+    synchronized (lock) {
+      target = appendedCount;
+    }
+    sync(target);
+  }
+
+  /**
+   * Waits until the first count appended entries are on disk. Throws an IOException if writing
+   * them failed, after which the journal accepts no more writes
+   */
+  void sync(long count) throws IOException {
+    ByteBuffer frame;
+    long frameEnd;
+    FileChannel channel;
+    synchronized (lock) {
+      while (durableCount < count && writing && failure == null) {
+        try {
+          lock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted waiting for the journal");
+        }
+      }
+      if (failure != null) throw new IOException("Journal write failed", failure);
+      if (durableCount >= count) return;
+      // Become the writer for everything buffered so far, including other threads' entries
+      writing = true;
+      frame = pending;
+      pending = spare;
+      frameEnd = appendedCount;
+      channel = log;
+    }
+
+    IOException error = null;
+    try {
+      writeFrame(channel, frame);
+    } catch (IOException e) {
+      error = e;
+    }
+    synchronized (lock) {
+      frame.clear();
+      spare = frame;
+      writing = false;
+      if (error == null) {
+        durableCount = frameEnd;
+      } else {
+        failure = error;
+      }
+      lock.notifyAll();
+    }
+    if (error != null) throw error;
+  }
+
+  /**
+   * Starts a new log and replaces the last snapshot and the logs before the new one with a single
+   * snapshot. Entries appended meanwhile go to the new log and are not held up by the work
+   */
+  public void checkpoint() throws IOException {
+    synchronized (checkpointLock) {
+      int folded;
+      ByteBuffer frame;
+      long frameEnd;
+      synchronized (lock) {
+        // Let the current writer finish, then take its place while the log is swapped
+        while (writing && failure == null) {
+          try {
+            lock.wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the journal");
+          }
+        }
+        if (failure != null) throw new IOException("Journal write failed", failure);
+        writing = true;
+        frame = pending;
+        pending = spare;
+        frameEnd = appendedCount;
+      }
+      try {
+        writeFrame(log, frame);
+        FileChannel next = openLog(generation + 1);
+        synchronized (lock) {
+          log.close();
+          log = next;
+          folded = generation++;
+          durableCount = frameEnd;
+        }
+      } catch (IOException e) {
+        synchronized (lock) {
+          failure = e;
+        }
+        throw e;
+      } finally {
+        synchronized (lock) {
+          frame.clear();
+          spare = frame;
+          writing = false;
+          lock.notifyAll();
+        }
+      }
+
+      TreeMap<Integer, Path> snapshots = new TreeMap<>();
+      TreeMap<Integer, Path> logs = new TreeMap<>();
+      list(snapshots, logs);
+      int base = snapshots.isEmpty() ? 0 : snapshots.lastKey();
+      Map<Long, SessionRecord> sessions =
+          snapshots.isEmpty() ? new HashMap<>() : readSnapshot(snapshots.lastEntry().getValue());
+      for (Path file : logs.subMap(base, true, folded, true).values()) {
+        replay(file, sessions);
+      }
+      writeSnapshot(folded + 1, sessions);
+      deleteBefore(folded + 1);
+    }
+  }
+
+  /** Closes the log without writing entries not yet synced */
+  @Override
+  public void close() throws IOException {
+    synchronized (lock) {
+      log.close();
+    }
+  }
+
+  private FileChannel openLog(int generation) throws IOException {
+    FileChannel channel =
+        FileChannel.open(
+            directory.resolve("journal-" + generation + ".log"),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE);
+    channel.position(channel.size());
+    return channel;
+  }
+
+  /** Writes the buffered entries as one frame of count, checksum and entries, and forces it */
+  private static void writeFrame(FileChannel channel, ByteBuffer entries) throws IOException {
+    entries.flip();
+    if (!entries.hasRemaining()) return;
+    CRC32 crc = new CRC32();
+    crc.update(entries.duplicate());
+    ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+    header.putInt(entries.remaining() / ENTRY_SIZE).putInt((int) crc.getValue()).flip();
+    ByteBuffer[] buffers = {header, entries};
+    while (entries.hasRemaining()) {
+      channel.write(buffers);
+    }
+    channel.force(false);
+  }
+
+  /**
+   * Applies every whole frame of the log to the sessions, returning the length of the log up to
+   * the end of the last whole frame
+   */
+  private static long replay(Path file, Map<Long, SessionRecord> sessions) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+    CRC32 crc = new CRC32();
+    while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+      int start = buffer.position();
+      int count = buffer.getInt();
+      int checksum = buffer.getInt();
+      if (count <= 0 || count > buffer.remaining() / ENTRY_SIZE) return start;
+      ByteBuffer entries = buffer.slice();
+      entries.limit(count * ENTRY_SIZE);
+      crc.reset();
+      crc.update(entries.duplicate());
+      if ((int) crc.getValue() != checksum) return start;
+      for (int i = 0; i < count; i++) {
+        apply(sessions, entries.getLong(), entries.getInt(), entries.getInt());
+      }
+      buffer.position(buffer.position() + count * ENTRY_SIZE);
+    }
+    return buffer.position();
+  }
+
+  private static void apply(
+      Map<Long, SessionRecord> sessions, long player, int puzzle, int action) {
+    int kind = action & 7;
+    if (kind == SESSION_REMOVED) {
+      sessions.remove(player);
+      return;
+    }
+    SessionRecord record = sessions.getOrDefault(player, SessionRecord.empty());
+    if (kind == LAMP_ADDED || kind == LAMP_REMOVED) {
+      record = record.withLamp(puzzle, action >>> 3, kind == LAMP_ADDED);
+    } else if (kind == PUZZLE_RESET) {
+      record = record.withoutLamps(puzzle);
+    } else if (kind == PUZZLE_SWITCHED) {
+      record = record.withActivePuzzle(puzzle);
+    }
+    sessions.put(player, record);
+  }
+
+  private static Map<Long, SessionRecord> readSnapshot(Path file) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+    if (buffer.remaining() < 12
+        || buffer.getInt() != SNAPSHOT_MAGIC
+        || buffer.getInt() != SNAPSHOT_VERSION) {
+      throw new IOException("Not a session snapshot: " + file);
+    }
+    int count = buffer.getInt();
+    Map<Long, SessionRecord> sessions = new HashMap<>();
+    for (int i = 0; i < count; i++) {
+      if (buffer.remaining() < 8) throw new IOException("Truncated session snapshot: " + file);
+      sessions.put(buffer.getLong(), SessionRecord.read(buffer));
+    }
+    return sessions;
+  }
+
+  /** Writes the snapshot under a temporary name and renames it once it is safely on disk */
+  private void writeSnapshot(int generation, Map<Long, SessionRecord> sessions)
+      throws IOException {
+    Path file = directory.resolve("snapshot-" + generation + ".dat");
+    Path temporary = directory.resolve("snapshot-" + generation + ".tmp");
+    try (FileChannel channel =
+        FileChannel.open(
+            temporary,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+      buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(sessions.size());
+      for (Map.Entry<Long, SessionRecord> entry : sessions.entrySet()) {
+        SessionRecord record = entry.getValue();
+        if (buffer.remaining() < 8 + record.getByteSize()) {
+          buffer.flip();
+          while (buffer.hasRemaining()) {
+            channel.write(buffer);
+          }
+          buffer.clear();
+          if (buffer.remaining() < 8 + record.getByteSize()) {
+            buffer = ByteBuffer.allocate(8 + record.getByteSize());
+          }
+        }
+        buffer.putLong(entry.getKey());
+        record.write(buffer);
+      }
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Deletes the snapshots and logs older than the given generation, and stray temporary files */
+  private void deleteBefore(int generation) throws IOException {
+    TreeMap<Integer, Path> snapshots = new TreeMap<>();
+    TreeMap<Integer, Path> logs = new TreeMap<>();
+    list(snapshots, logs);
+    for (Path file : snapshots.headMap(generation).values()) {
+      Files.deleteIfExists(file);
+    }
+    for (Path file : logs.headMap(generation).values()) {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private void list(Map<Integer, Path> snapshots, Map<Integer, Path> logs) throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        Matcher snapshot = SNAPSHOT_NAME.matcher(name);
+        Matcher log = LOG_NAME.matcher(name);
+        if (snapshot.matches()) {
+          snapshots.put(Integer.parseInt(snapshot.group(1)), file);
+        } else if (log.matches()) {
+          logs.put(Integer.parseInt(log.group(1)), file);
+        } else if (name.endsWith(".tmp")) {
+          // A snapshot that a crash interrupted; the logs it was made from are still there
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package com.comp301.a09akari.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact form of one player's game, holding no puzzle data of its own. Besides the active puzzle
+ * index it keeps a single long array with, for each puzzle that has lamps on it, a header word
+ * holding the puzzle index and a word count, followed by the puzzle's lamp bits up to the last word
+ * with a lamp in it. Visited puzzles without lamps take no space, so an idle player costs a few
+ * dozen bytes plus one word per 64 cells of each board they have lamps on.
+ */
+final class SessionRecord {
+  private static final SessionRecord EMPTY = new SessionRecord(0, new long[0]);
+
+  private final int activeIndex;
+  private final long[] lamps;
+
+  private SessionRecord(int activeIndex, long[] lamps) {
+    this.activeIndex = activeIndex;
+    this.lamps = lamps;
+  }
+
+  /** Returns the record of a player who has not placed any lamps */
+  static SessionRecord empty() {
+    return EMPTY;
+  }
+
+  /** Packs the model's active puzzle and the lamps on every puzzle it has visited */
+  static SessionRecord of(ModelImpl model) {
+    List<Integer> indexes = new ArrayList<>();
+    Map<Integer, LampSnapshot> snapshots = model.getVisitedSnapshots();
+    int length = 0;
+    for (Map.Entry<Integer, LampSnapshot> entry : snapshots.entrySet()) {
+      if (entry.getValue().getLampCount() == 0) continue;
+      indexes.add(entry.getKey());
+      length += 1 + wordCount(entry.getValue());
+    }
+    indexes.sort(null);
+
+    long[] lamps = new long[length];
+    int at = 0;
+    for (int index : indexes) {
+      LampSnapshot snapshot = snapshots.get(index);
+      int words = wordCount(snapshot);
+      lamps[at] = (long) index << 32 | words;
+      for (int cell = snapshot.nextLamp(0); cell >= 0; cell = snapshot.nextLamp(cell + 1)) {
+        lamps[at + 1 + (cell >>> 6)] |= 1L << cell;
+      }
+      at += 1 + words;
+    }
+    return new SessionRecord(model.getActivePuzzleIndex(), lamps);
+  }
+
+  int getActivePuzzleIndex() {
+    return activeIndex;
+  }
+
+  /** Returns this record with a different active puzzle */
+  SessionRecord withActivePuzzle(int puzzleIndex) {
+    return puzzleIndex == activeIndex ? this : new SessionRecord(puzzleIndex, lamps);
+  }
+
+  /** Returns this record with a lamp added to or removed from a cell of one puzzle */
+  SessionRecord withLamp(int puzzleIndex, int cell, boolean lamp) {
+    int at = find(puzzleIndex);
+    int words = at < 0 ? 0 : (int) lamps[at];
+    int word = cell >>> 6;
+    boolean present = word < words && (lamps[at + 1 + word] & (1L << cell)) != 0;
+    if (present == lamp) return this;
+
+    long[] bits = new long[Math.max(words, word + 1)];
+    if (at >= 0) System.arraycopy(lamps, at + 1, bits, 0, words);
+    bits[word] ^= 1L << cell;
+    int length = bits.length;
+    while (length > 0 && bits[length - 1] == 0) {
+      length--;
+    }
+    return withBlock(puzzleIndex, bits, length);
+  }
+
+  /** Returns this record with every lamp on one puzzle removed */
+  SessionRecord withoutLamps(int puzzleIndex) {
+    return find(puzzleIndex) < 0 ? this : withBlock(puzzleIndex, null, 0);
+  }
+
+  /** Returns the position of the puzzle's header word, or -1 if it has no lamps */
+  private int find(int puzzleIndex) {
+    for (int at = 0; at < lamps.length; at += 1 + (int) lamps[at]) {
+      if ((int) (lamps[at] >>> 32) == puzzleIndex) return at;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns this record with the puzzle's lamp words replaced by the first words of bits, keeping
+   * the puzzles in index order. The puzzle is left out altogether if words is 0
+   */
+  private SessionRecord withBlock(int puzzleIndex, long[] bits, int words) {
+    int start = lamps.length;
+    int end = lamps.length;
+    for (int at = 0; at < lamps.length; at += 1 + (int) lamps[at]) {
+      int index = (int) (lamps[at] >>> 32);
+      if (index >= puzzleIndex) {
+        start = at;
+        end = index == puzzleIndex ? at + 1 + (int) lamps[at] : at;
+        break;
+      }
+    }
+    long[] result = new long[lamps.length - (end - start) + (words == 0 ? 0 : 1 + words)];
+    System.arraycopy(lamps, 0, result, 0, start);
+    int at = start;
+    if (words > 0) {
+      result[at++] = (long) puzzleIndex << 32 | words;
+      System.arraycopy(bits, 0, result, at, words);
+      at += words;
+    }
+    System.arraycopy(lamps, end, result, at, lamps.length - end);
+    return new SessionRecord(activeIndex, result);
+  }
+
+  /**
+   * Rebuilds a model over the library with this record's lamps and active puzzle. Throws an
+   * IllegalArgumentException if the record does not fit the library's puzzles
+   */
+  ModelImpl toModel(PuzzleLibrary library) {
+    ModelImpl model = new ModelImpl(library);
+    for (int at = 0; at < lamps.length; at += 1 + (int) lamps[at]) {
+      int index = (int) (lamps[at] >>> 32);
+      int words = (int) lamps[at];
+      if (index < 0 || index >= library.size()) {
+        throw new IllegalArgumentException("Record names a puzzle not in the library");
+      }
+      Puzzle puzzle = library.getPuzzle(index);
+      int cells = puzzle.getWidth() * puzzle.getHeight();
+      LampSnapshot snapshot = LampSnapshot.empty(puzzle.getWidth(), puzzle.getHeight());
+      for (int word = 0; word < words; word++) {
+        for (long bits = lamps[at + 1 + word]; bits != 0; bits &= bits - 1) {
+          int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+          if (cell >= cells) throw new IllegalArgumentException("Record has a lamp off the board");
+          snapshot = snapshot.with(cell);
+        }
+      }
+      model.setActivePuzzleIndex(index);
+      model.restoreLampSnapshot(snapshot);
+    }
+    if (activeIndex >= library.size()) {
+      throw new IllegalArgumentException("Record names a puzzle not in the library");
+    }
+    model.setActivePuzzleIndex(activeIndex);
+    return model;
+  }
+
+  /** Returns the number of bytes write() takes */
+  int getByteSize() {
+    return 8 + 8 * lamps.length;
+  }
+
+  /** Writes the record as the active index, the word count and the words */
+  void write(ByteBuffer out) {
+    out.putInt(activeIndex);
+    out.putInt(lamps.length);
+    for (long word : lamps) {
+      out.putLong(word);
+    }
+  }
+
+  /**
+   * Reads a record written by write(). Throws an IOException if the buffer holds a truncated or
+   * malformed record
+   */
+  static SessionRecord read(ByteBuffer in) throws IOException {
+    if (in.remaining() < 8) throw new IOException("Truncated session record");
+    int activeIndex = in.getInt();
+    int length = in.getInt();
+    if (activeIndex < 0 || length < 0 || length > in.remaining() / 8) {
+      throw new IOException("Corrupt session record");
+    }
+    long[] lamps = new long[length];
+    for (int i = 0; i < length; i++) {
+      lamps[i] = in.getLong();
+    }
+    for (int at = 0; at < length; at += 1 + (int) lamps[at]) {
+      if ((int) lamps[at] < 0 || (int) lamps[at] >= length - at) {
+        throw new IOException("Corrupt session record");
+      }
+    }
+    return new SessionRecord(activeIndex, lamps);
+  }
+
+  private static int wordCount(LampSnapshot snapshot) {
+    int last = -1;
+    for (int cell = snapshot.nextLamp(0); cell >= 0; cell = snapshot.nextLamp(cell + 1)) {
+      last = cell;
+    }
+    return (last >>> 6) + 1;
+  }
+}
@@ -0,0 +1,380 @@
+package com.comp301.a09akari.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Games of many players over one shared PuzzleLibrary. A player's session is a full ModelImpl only
+ * while it is open; once released it is packed into a SessionRecord holding just the active puzzle
+ * index and the lamp bits of the puzzles it has lamps on, and sessions left idle long enough can be
+ * evicted to a scratch file and dropped from memory altogether. Opening a session unpacks it again,
+ * reading it back from the file if it was evicted.
+ *
+ * <p>Evicted records are written to slots whose sizes are powers of two, and a slot freed by
+ * reading its record back is reused by the next record of that size, so the file only grows with
+ * the number of sessions evicted at once. The file is truncated when the store is created and
+ * means nothing to anyone else.
+ *
+ * <p>Given a SessionJournal, the store starts with the sessions it recovered, and logs every change
+ * to an open session's lamps or active puzzle, syncing the journal before the change returns. If
+ * the journal cannot be written, the call that made the change throws an UncheckedIOException.
+ *
+ * <p>The store may be used from several threads, but the model of an open session is not, so each
+ * session should be played from one thread at a time.
+ */
+public class SessionStore implements Closeable {
+  private static final int MIN_SLOT_SIZE = 16;
+
+  /** One player's session, in whichever of its three forms it is currently held */
+  private static final class Session {
+    private ModelImpl model;
+    private SessionRecord record;
+    private long offset = -1;
+    private int slotSize;
+    private long lastUsed;
+    private JournalObserver observer;
+    /** Set once remove() has taken the session out of the store, for callers that still hold it */
+    private boolean removed;
+  }
+
+  /**
+   * Logs the changes made to one open session until it is detached. The lamps last logged for each
+   * visited puzzle are kept, so a switch of puzzles only logs what changed without being reported
+   */
+  private final class JournalObserver implements ModelObserver {
+    private final long playerId;
+    private final ModelImpl model;
+    private final Map<Integer, LampSnapshot> logged;
+    private int[] entries = new int[16];
+    private int length;
+    private boolean detached;
+
+    JournalObserver(long playerId, ModelImpl model) {
+      this.playerId = playerId;
+      this.model = model;
+      // The model was just built from what the journal holds
+      this.logged = model.getVisitedSnapshots();
+    }
+
+    /** Stops logging; entries appended before this returns precede anything appended after it */
+    synchronized void detach() {
+      detached = true;
+    }
+
+    @Override
+    public void update(Model m) {}
+
+    @Override
+    public void update(Model m, ModelChange change) {
+      long count;
+      synchronized (this) {
+        if (detached) return;
+        int puzzle = model.getActivePuzzleIndex();
+        int width = model.getActivePuzzle().getWidth();
+        length = 0;
+        switch (change.getType()) {
+          case LAMP_ADDED:
+          case LAMP_REMOVED:
+          case BATCH:
+            for (int cell : change.getLampFlips()) {
+              boolean lamp = model.isLamp(cell / width, cell % width);
+              int kind = lamp ? SessionJournal.LAMP_ADDED : SessionJournal.LAMP_REMOVED;
+              add(puzzle, SessionJournal.entry(kind, cell));
+            }
+            logged.put(puzzle, model.getLampSnapshot());
+            break;
+          case PUZZLE_RESET:
+            add(puzzle, SessionJournal.entry(SessionJournal.PUZZLE_RESET, 0));
+            logged.put(puzzle, model.getLampSnapshot());
+            break;
+          default:
+            // A batch that switched puzzles reports no lamp flips, so compare with what was logged
+            for (Map.Entry<Integer, LampSnapshot> entry : model.getVisitedSnapshots().entrySet()) {
+              int index = entry.getKey();
+              LampSnapshot lamps = entry.getValue();
+              LampSnapshot last = logged.get(index);
+              if (last == null) last = LampSnapshot.empty(lamps.getWidth(), lamps.getHeight());
+              LampSnapshot.forEachDifference(
+                  last,
+                  lamps,
+                  cell -> {
+                    boolean lamp = lamps.contains(cell);
+                    int kind = lamp ? SessionJournal.LAMP_ADDED : SessionJournal.LAMP_REMOVED;
+                    add(index, SessionJournal.entry(kind, cell));
+                  });
+              logged.put(index, lamps);
+            }
+            add(puzzle, SessionJournal.entry(SessionJournal.PUZZLE_SWITCHED, 0));
+        }
+        if (length == 0) return;
+        count = journal.append(playerId, entries, length);
+      }
+      try {
+        journal.sync(count);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private void add(int puzzle, int action) {
+      if (length + 2 > entries.length) entries = Arrays.copyOf(entries, 2 * entries.length);
+      entries[length++] = puzzle;
+      entries[length++] = action;
+    }
+  }
+
+  private final PuzzleLibrary puzzleLibrary;
+  private final SessionJournal journal;
+  private final ConcurrentHashMap<Long, Session> sessionsById;
+  private final FileChannel channel;
+  private final Map<Integer, Deque<Long>> freeSlotsBySize;
+  private long fileEnd;
+  private final AtomicInteger evictedCount;
+
+  /**
+   * Creates an empty store over the library, evicting idle sessions to the given file. Throws an
+   * IllegalArgumentException if either argument is null, or an IOException if the file cannot be
+   * opened
+   */
+  public SessionStore(PuzzleLibrary library, Path evictionFile) throws IOException {
+    this(library, evictionFile, null);
+  }
+
+  /**
+   * Creates a store over the library holding the sessions the journal recovered, and logging
+   * changes to it from now on. Throws an IllegalArgumentException if any argument is null, or an
+   * IOException if the eviction file cannot be opened
+   */
+  public SessionStore(PuzzleLibrary library, Path evictionFile, SessionJournal journal)
+      throws IOException {
+    if (library == null || evictionFile == null) {
+      throw new IllegalArgumentException("Library and eviction file cannot be null");
+    }
+    this.puzzleLibrary = library;
+    this.journal = journal;
+    this.sessionsById = new ConcurrentHashMap<>();
+    this.channel =
+        FileChannel.open(
+            evictionFile,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    this.freeSlotsBySize = new HashMap<>();
+    this.evictedCount = new AtomicInteger();
+    if (journal != null) {
+      long now = System.nanoTime();
+      for (Map.Entry<Long, SessionRecord> entry : journal.takeRecoveredSessions().entrySet()) {
+        Session session = new Session();
+        session.record = entry.getValue();
+        session.lastUsed = now;
+        sessionsById.put(entry.getKey(), session);
+      }
+    }
+  }
+
+  /**
+   * Returns the model of the player's session, starting a new session if the player has none. A
+   * session that is already open returns the same model. Throws an IOException if the session was
+   * evicted and cannot be read back
+   */
+  public Model open(long playerId) throws IOException {
+    while (true) {
+      Session session = sessionsById.computeIfAbsent(playerId, id -> new Session());
+      synchronized (session) {
+        // Removed since it was looked up, so look up the player's new session, if any
+        if (session.removed) continue;
+        if (session.model == null) {
+          SessionRecord record = session.record;
+          if (record == null && session.offset >= 0) {
+            record = readRecord(session.offset);
+            freeSlot(session.offset, session.slotSize);
+            session.offset = -1;
+            evictedCount.decrementAndGet();
+          }
+          session.model =
+              record == null ? new ModelImpl(puzzleLibrary) : record.toModel(puzzleLibrary);
+          session.record = null;
+          if (journal != null) {
+            session.observer = new JournalObserver(playerId, session.model);
+            session.model.addObserver(session.observer);
+          }
+        }
+        session.lastUsed = System.nanoTime();
+        return session.model;
+      }
+    }
+  }
+
+  /**
+   * Packs the player's open session into its compact form. The model returned by open() must not
+   * be used afterwards. Does nothing if the session is not open
+   */
+  public void release(long playerId) {
+    Session session = sessionsById.get(playerId);
+    if (session == null) return;
+    synchronized (session) {
+      if (session.model == null) return;
+      session.record = SessionRecord.of(session.model);
+      session.model = null;
+      if (session.observer != null) {
+        // Changes made after this would be missing from the record, so keep them out of the log
+        session.observer.detach();
+        session.observer = null;
+      }
+      session.lastUsed = System.nanoTime();
+    }
+  }
+
+  /**
+   * Forgets the player's session, in whatever form it is held. Returns false if there was none. A
+   * model of the session still in use is no longer journaled. Throws an IOException if the removal
+   * cannot be journaled
+   */
+  public boolean remove(long playerId) throws IOException {
+    while (true) {
+      Session session = sessionsById.get(playerId);
+      if (session == null) return false;
+      synchronized (session) {
+        if (session.removed) continue;
+        // Detached before the removal is logged, so later changes cannot bring the session back
+        if (session.observer != null) {
+          session.observer.detach();
+          session.observer = null;
+        }
+        try {
+          if (journal != null) {
+            // Logged while the session is still in the store, so a new session for the player
+            // cannot log anything ahead of it
+            int[] entry = {0, SessionJournal.entry(SessionJournal.SESSION_REMOVED, 0)};
+            journal.sync(journal.append(playerId, entry, entry.length));
+          }
+        } finally {
+          session.removed = true;
+          sessionsById.remove(playerId, session);
+          if (session.offset >= 0) {
+            freeSlot(session.offset, session.slotSize);
+            session.offset = -1;
+            evictedCount.decrementAndGet();
+          }
+          session.model = null;
+          session.record = null;
+        }
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Writes every released session unused for at least the given time to the eviction file and
+   * drops it from memory, returning how many were evicted. Open sessions are never evicted. Throws
+   * an IOException if a record cannot be written, leaving that session in memory
+   */
+  public int evictIdle(long idleMillis) throws IOException {
+    long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(idleMillis);
+    int evicted = 0;
+    for (Session session : sessionsById.values()) {
+      synchronized (session) {
+        if (session.record == null || session.lastUsed - cutoff > 0) continue;
+        session.offset = writeRecord(session.record);
+        session.slotSize = slotSize(session.record.getByteSize());
+        session.record = null;
+        evictedCount.incrementAndGet();
+        evicted++;
+      }
+    }
+    return evicted;
+  }
+
+  /** Returns the number of sessions in the store, open, released or evicted */
+  public int getSessionCount() {
+    return sessionsById.size();
+  }
+
+  /** Returns the number of sessions currently evicted to the file */
+  public int getEvictedCount() {
+    return evictedCount.get();
+  }
+
+  /** Closes the eviction file; evicted sessions can no longer be opened */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private long writeRecord(SessionRecord record) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(record.getByteSize());
+    record.write(buffer);
+    buffer.flip();
+    int slotSize = slotSize(record.getByteSize());
+    long offset;
+    synchronized (freeSlotsBySize) {
+      Deque<Long> free = freeSlotsBySize.get(slotSize);
+      if (free != null && !free.isEmpty()) {
+        offset = free.pop();
+      } else {
+        offset = fileEnd;
+        fileEnd += slotSize;
+      }
+    }
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer, offset + buffer.position());
+      }
+    } catch (IOException e) {
+      freeSlot(offset, slotSize);
+      throw e;
+    }
+    return offset;
+  }
+
+  private SessionRecord readRecord(long offset) throws IOException {
+    int length = readByteSize(offset);
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    readFully(buffer, offset);
+    buffer.flip();
+    return SessionRecord.read(buffer);
+  }
+
+  /** Returns the size of the record written at the offset, read from its header */
+  private int readByteSize(long offset) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(8);
+    readFully(header, offset);
+    int words = header.getInt(4);
+    if (words < 0 || words > (Integer.MAX_VALUE - 8) / 8) {
+      throw new IOException("Corrupt session record");
+    }
+    return 8 + 8 * words;
+  }
+
+  private void readFully(ByteBuffer buffer, long offset) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, offset + buffer.position()) < 0) {
+        throw new IOException("Truncated session record");
+      }
+    }
+  }
+
+  private void freeSlot(long offset, int slotSize) {
+    synchronized (freeSlotsBySize) {
+      freeSlotsBySize.computeIfAbsent(slotSize, size -> new ArrayDeque<>()).push(offset);
+    }
+  }
+
+  private static int slotSize(int byteSize) {
+    return Math.max(MIN_SLOT_SIZE, Integer.highestOneBit(byteSize - 1) << 1);
+  }
+}
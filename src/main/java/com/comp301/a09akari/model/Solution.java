@@ -0,0 +1,58 @@
+package com.comp301.a09akari.model;
+
+/** An immutable lamp placement for a puzzle, as produced by a Solver */
+public final class Solution {
+  private final int width;
+  private final int height;
+  private final LampBitSet lamps;
+
+  Solution(int width, int height, LampBitSet lamps) {
+    this.width = width;
+    this.height = height;
+    this.lamps = lamps.copy();
+  }
+
+  /** Getter method for the width of the puzzle this solution belongs to */
+  public int getWidth() {
+    return width;
+  }
+
+  /** Getter method for the height of the puzzle this solution belongs to */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Returns true if this solution places a lamp in the cell at row r, column c. Throws an
+   * IndexOutOfBoundsException if r or c is out of bounds
+   */
+  public boolean isLamp(int r, int c) {
+    if (r < 0 || r >= height || c < 0 || c >= width) {
+      throw new IndexOutOfBoundsException("Row or column out of bounds");
+    }
+    return lamps.get(r * width + c);
+  }
+
+  /** Returns the number of lamps this solution places */
+  public int getLampCount() {
+    return lamps.cardinality();
+  }
+
+  /** Returns the lamps as a set of flat cell indices (row * width + col) */
+  LampBitSet getLamps() {
+    return lamps;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof Solution)) return false;
+    Solution solution = (Solution) o;
+    return width == solution.width && lamps.equals(solution.lamps);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * width + lamps.hashCode();
+  }
+}
@@ -0,0 +1,68 @@
+package com.comp301.a09akari.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Solutions found by one search, shared by every thread working on it. The search is finished as
+ * soon as limit solutions have been found or its deadline has passed, which lets all other branches
+ * stop early.
+ */
+final class SolutionCollector {
+  private final int limit;
+  private final long deadline;
+  private final AtomicInteger count;
+  private final AtomicReference<Solution> first;
+  private volatile boolean timedOut;
+
+  /** Creates a collector for a search with no time limit */
+  SolutionCollector(int limit) {
+    this(limit, 0);
+  }
+
+  /**
+   * Creates a collector for a search which gives up once timeBudgetNanos have elapsed from now, or
+   * never if the budget is 0
+   */
+  SolutionCollector(int limit, long timeBudgetNanos) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("Limit must be positive");
+    }
+    if (timeBudgetNanos < 0) {
+      throw new IllegalArgumentException("Time budget cannot be negative");
+    }
+    this.limit = limit;
+    this.deadline = timeBudgetNanos == 0 ? 0 : System.nanoTime() + timeBudgetNanos;
+    this.count = new AtomicInteger();
+    this.first = new AtomicReference<>();
+  }
+
+  /** Records a solution found by some branch of the search */
+  void add(Solution solution) {
+    first.compareAndSet(null, solution);
+    count.incrementAndGet();
+  }
+
+  boolean isDone() {
+    if (count.get() >= limit || timedOut) return true;
+    if (deadline != 0 && System.nanoTime() - deadline >= 0) {
+      timedOut = true;
+    }
+    return timedOut;
+  }
+
+  /** Returns true if the search gave up because its time budget ran out */
+  boolean isTimedOut() {
+    return timedOut && count.get() < limit;
+  }
+
+  /** Returns the number of solutions found, never more than the limit */
+  int getCount() {
+    return Math.min(count.get(), limit);
+  }
+
+  /** Returns the first solution found, or null if there was none */
+  Solution getFirst() {
+    return first.get();
+  }
+}
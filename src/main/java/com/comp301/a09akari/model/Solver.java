@@ -0,0 +1,16 @@
+package com.comp301.a09akari.model;
+
+public interface Solver {
+  /**
+   * Returns a lamp placement which solves the given puzzle, or null if the puzzle has no solution.
+   * Throws an IllegalArgumentException if the puzzle is null
+   */
+  Solution solve(Puzzle puzzle);
+
+  /**
+   * Returns the number of distinct solutions of the given puzzle, stopping the search as soon as
+   * limit solutions have been found (so a limit of 2 is enough to tell whether the solution is
+   * unique). Throws an IllegalArgumentException if the puzzle is null or limit is less than 1
+   */
+  int countSolutions(Puzzle puzzle, int limit);
+}
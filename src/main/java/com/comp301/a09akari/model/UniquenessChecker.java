@@ -0,0 +1,70 @@
+package com.comp301.a09akari.model;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Decides whether puzzles have exactly one solution by counting solutions up to two, giving up on
+ * any single puzzle once its time budget is spent. Batches are checked in parallel, one puzzle per
+ * core at a time.
+ */
+public class UniquenessChecker {
+  public enum Verdict {
+    UNIQUE,
+    NO_SOLUTION,
+    MULTIPLE_SOLUTIONS,
+    TIMED_OUT,
+  }
+
+  private final long timeBudgetNanos;
+
+  /** Creates a checker that searches for as long as each puzzle needs */
+  public UniquenessChecker() {
+    this.timeBudgetNanos = 0;
+  }
+
+  /**
+   * Creates a checker that gives up on a puzzle after timeBudgetMillis milliseconds. Throws an
+   * IllegalArgumentException if the budget is not positive
+   */
+  public UniquenessChecker(long timeBudgetMillis) {
+    if (timeBudgetMillis <= 0) {
+      throw new IllegalArgumentException("Time budget must be positive");
+    }
+    this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+  }
+
+  /** Checks a single puzzle. Throws an IllegalArgumentException if the puzzle is null */
+  public Verdict check(Puzzle puzzle) {
+    if (puzzle == null) {
+      throw new IllegalArgumentException("Puzzle cannot be null");
+    }
+    SolutionCollector collector = new SolutionCollector(2, timeBudgetNanos);
+    SearchState root = new SearchState(puzzle);
+    // Uniqueness usually means refuting the whole tree, so pay for probing once up front
+    if (root.probe()) {
+      new DepthFirstSearch(collector).explore(root);
+    }
+    if (collector.isTimedOut()) return Verdict.TIMED_OUT;
+    switch (collector.getCount()) {
+      case 0:
+        return Verdict.NO_SOLUTION;
+      case 1:
+        return Verdict.UNIQUE;
+      default:
+        return Verdict.MULTIPLE_SOLUTIONS;
+    }
+  }
+
+  /**
+   * Checks every puzzle in parallel, returning the verdicts in the same order. Throws an
+   * IllegalArgumentException if the list or any puzzle in it is null
+   */
+  public List<Verdict> checkAll(List<Puzzle> puzzles) {
+    if (puzzles == null) {
+      throw new IllegalArgumentException("Puzzle list cannot be null");
+    }
+    return puzzles.parallelStream().map(this::check).collect(Collectors.toList());
+  }
+}
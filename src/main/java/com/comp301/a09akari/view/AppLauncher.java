@@ -10,6 +10,8 @@ import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
 
 public class AppLauncher extends Application {
+  /** System property choosing the board view; "canvas" draws on a Canvas for very large boards */
+  public static final String RENDERER_PROPERTY = "akari.renderer";
 
   @Override
   public void start(Stage stage) {
@@ -22,11 +24,16 @@ public class AppLauncher extends Application {
     library.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_05));
     Model model = new ModelImpl(library);
 
-    // Step 2: Create the Controller
-    AlternateMvcController controller = new ControllerImpl(model);
+    // Step 2: Create the Controller, with fresh puzzles generated in the background for "Random"
+    PuzzlePool pool =
+        new PuzzlePool(new PuzzleGenerator(), 10, 10, PuzzleGenerator.Difficulty.MEDIUM, 3);
+    AlternateMvcController controller = new ControllerImpl(model, pool);
 
     // Step 3: Create FXComponent Instances
-    FXComponent puzzleView = new PuzzleView(model, controller);
+    BoardView puzzleView =
+        "canvas".equals(System.getProperty(RENDERER_PROPERTY))
+            ? new CanvasPuzzleView(model, controller)
+            : new PuzzleView(model, controller);
     FXComponent controlView = new ControlView(model, controller);
     FXComponent messageView = new MessageView(model);
 
@@ -42,12 +49,24 @@ public class AppLauncher extends Application {
     stage.setScene(scene);
 
     // Step 6: Register Observer to Dynamically Update the View
+    // The board view keeps its nodes and redraws only the cells each change lists. Changes are
+    // merged and passed on at most once per frame, so bulk updates cost a single redraw
     model.addObserver(
-        m -> {
-          root.setCenter(puzzleView.render());
-          root.setBottom(controlView.render());
-          root.setTop(messageView.render());
-        });
+        new ThrottledObserver(
+            new ModelObserver() {
+              @Override
+              public void update(Model m) {
+                root.setCenter(puzzleView.render());
+                root.setBottom(controlView.render());
+                root.setTop(messageView.render());
+              }
+
+              @Override
+              public void update(Model m, ModelChange change) {
+                root.setCenter(puzzleView.refresh(change));
+                root.setTop(messageView.render());
+              }
+            }));
 
     // Step 7: Set the Stage and Show the Application
     stage.setTitle("Akari");
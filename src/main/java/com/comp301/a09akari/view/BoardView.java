@@ -0,0 +1,10 @@
+package com.comp301.a09akari.view;
+
+import com.comp301.a09akari.model.ModelChange;
+import javafx.scene.Parent;
+
+/** An FXComponent showing the active puzzle, which can catch up with a change incrementally */
+public interface BoardView extends FXComponent {
+  /** Brings the view up to date with the given change and returns its root node */
+  Parent refresh(ModelChange change);
+}
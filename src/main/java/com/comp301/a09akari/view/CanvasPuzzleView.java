@@ -0,0 +1,229 @@
+package com.comp301.a09akari.view;
+
+import com.comp301.a09akari.controller.AlternateMvcController;
+import com.comp301.a09akari.model.CellType;
+import com.comp301.a09akari.model.Model;
+import com.comp301.a09akari.model.ModelChange;
+import com.comp301.a09akari.model.Puzzle;
+import javafx.animation.AnimationTimer;
+import javafx.geometry.VPos;
+import javafx.scene.Parent;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * View of the active puzzle drawn on a single Canvas, for boards too large for PuzzleView's node
+ * per cell. A change only repaints the tiles it lists, and only those in view. Scrolling zooms
+ * around the mouse and dragging pans; both just mark the view for a full repaint, which an
+ * AnimationTimer carries out at most once per frame however many events arrive.
+ */
+public class CanvasPuzzleView implements BoardView {
+  private static final double MIN_TILE_SIZE = 2;
+  private static final double MAX_TILE_SIZE = 80;
+  private static final double ZOOM_STEP = 1.1;
+  /** Mouse movement, in pixels, beyond which a press is a drag rather than a click */
+  private static final double DRAG_SLOP = 3;
+
+  private final Model model;
+  private final AlternateMvcController controller;
+  private final Pane root;
+  private final Canvas canvas;
+
+  private Puzzle renderedPuzzle;
+  private double tileSize;
+  private double offsetX;
+  private double offsetY;
+  private boolean repaintPending;
+  private Font clueFont;
+
+  private double pressX;
+  private double pressY;
+  private boolean dragged;
+
+  public CanvasPuzzleView(Model model, AlternateMvcController controller) {
+    this.model = model;
+    this.controller = controller;
+    this.canvas = new Canvas();
+    this.root = new Pane(canvas);
+    root.setMinSize(0, 0);
+    root.setPrefSize(600, 520);
+    canvas.widthProperty().bind(root.widthProperty());
+    canvas.heightProperty().bind(root.heightProperty());
+    canvas.widthProperty().addListener((o, before, after) -> repaintPending = true);
+    canvas.heightProperty().addListener((o, before, after) -> repaintPending = true);
+
+    canvas.setOnScroll(
+        e -> zoom(e.getDeltaY() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP, e.getX(), e.getY()));
+    canvas.setOnMousePressed(
+        e -> {
+          pressX = e.getX();
+          pressY = e.getY();
+          dragged = false;
+        });
+    canvas.setOnMouseDragged(
+        e -> {
+          if (!dragged && Math.hypot(e.getX() - pressX, e.getY() - pressY) < DRAG_SLOP) return;
+          dragged = true;
+          offsetX -= e.getX() - pressX;
+          offsetY -= e.getY() - pressY;
+          pressX = e.getX();
+          pressY = e.getY();
+          repaintPending = true;
+        });
+    canvas.setOnMouseClicked(
+        e -> {
+          if (!dragged && e.getButton() == MouseButton.PRIMARY) click(e.getX(), e.getY());
+        });
+
+    new AnimationTimer() {
+      @Override
+      public void handle(long now) {
+        if (repaintPending) {
+          repaintPending = false;
+          paintAll();
+        }
+      }
+    }.start();
+  }
+
+  @Override
+  public Parent render() {
+    Puzzle puzzle = model.getActivePuzzle();
+    if (puzzle != renderedPuzzle) {
+      renderedPuzzle = puzzle;
+      fitToView();
+    }
+    repaintPending = true;
+    return root;
+  }
+
+  /** Repaints just the tiles the change lists, unless the whole board needs repainting anyway */
+  @Override
+  public Parent refresh(ModelChange change) {
+    if (change.affectsWholeBoard() || model.getActivePuzzle() != renderedPuzzle) {
+      return render();
+    }
+    if (repaintPending) return root;
+    int width = renderedPuzzle.getWidth();
+    GraphicsContext gc = canvas.getGraphicsContext2D();
+    if (change.getRow() >= 0) {
+      paintTile(gc, change.getRow(), change.getCol());
+    }
+    int[][] flips = {
+      change.getLampFlips(), change.getLitFlips(), change.getClueFlips(), change.getLegalityFlips()
+    };
+    for (int[] cells : flips) {
+      for (int cell : cells) {
+        paintTile(gc, cell / width, cell % width);
+      }
+    }
+    return root;
+  }
+
+  /** Picks a tile size that shows the whole puzzle, as far as the zoom limits allow */
+  private void fitToView() {
+    double width = root.getWidth() > 0 ? root.getWidth() : root.getPrefWidth();
+    double height = root.getHeight() > 0 ? root.getHeight() : root.getPrefHeight();
+    double fit = Math.min(width / renderedPuzzle.getWidth(), height / renderedPuzzle.getHeight());
+    tileSize = Math.max(MIN_TILE_SIZE, Math.min(MAX_TILE_SIZE, Math.floor(fit)));
+    offsetX = 0;
+    offsetY = 0;
+  }
+
+  /** Scales the view by the factor, keeping the board point under (x, y) where it is */
+  private void zoom(double factor, double x, double y) {
+    if (renderedPuzzle == null) return;
+    double scaled = Math.max(MIN_TILE_SIZE, Math.min(MAX_TILE_SIZE, tileSize * factor));
+    offsetX = (offsetX + x) * scaled / tileSize - x;
+    offsetY = (offsetY + y) * scaled / tileSize - y;
+    tileSize = scaled;
+    repaintPending = true;
+  }
+
+  private void click(double x, double y) {
+    if (renderedPuzzle == null) return;
+    int row = (int) Math.floor((y + offsetY) / tileSize);
+    int col = (int) Math.floor((x + offsetX) / tileSize);
+    if (row >= 0
+        && col >= 0
+        && row < renderedPuzzle.getHeight()
+        && col < renderedPuzzle.getWidth()
+        && renderedPuzzle.getCellType(row, col) == CellType.CORRIDOR) {
+      controller.clickCell(row, col);
+    }
+  }
+
+  /** Paints every tile in view, and the background around the board */
+  private void paintAll() {
+    if (renderedPuzzle == null) return;
+    GraphicsContext gc = canvas.getGraphicsContext2D();
+    gc.setFill(Color.LIGHTGRAY);
+    gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+    int firstRow = Math.max(0, (int) Math.floor(offsetY / tileSize));
+    int firstCol = Math.max(0, (int) Math.floor(offsetX / tileSize));
+    int lastRow =
+        Math.min(renderedPuzzle.getHeight() - 1, (int) ((offsetY + canvas.getHeight()) / tileSize));
+    int lastCol =
+        Math.min(renderedPuzzle.getWidth() - 1, (int) ((offsetX + canvas.getWidth()) / tileSize));
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int col = firstCol; col <= lastCol; col++) {
+        paintTile(gc, row, col);
+      }
+    }
+  }
+
+  private void paintTile(GraphicsContext gc, int row, int col) {
+    double x = col * tileSize - offsetX;
+    double y = row * tileSize - offsetY;
+    if (x + tileSize < 0 || y + tileSize < 0 || x > canvas.getWidth() || y > canvas.getHeight()) {
+      return;
+    }
+    // Leave a one pixel grid line between tiles once they are big enough to spare it
+    double gap = tileSize >= 6 ? 1 : 0;
+    gc.setFill(Color.LIGHTGRAY);
+    gc.fillRect(x, y, tileSize, tileSize);
+
+    switch (renderedPuzzle.getCellType(row, col)) {
+      case CORRIDOR:
+        if (model.isLamp(row, col)) {
+          gc.setFill(model.isLampIllegal(row, col) ? Color.RED : Color.ORANGE);
+        } else {
+          gc.setFill(model.isLit(row, col) ? Color.YELLOW : Color.WHITE);
+        }
+        gc.fillRect(x, y, tileSize - gap, tileSize - gap);
+        break;
+
+      case WALL:
+        gc.setFill(Color.GRAY);
+        gc.fillRect(x, y, tileSize - gap, tileSize - gap);
+        break;
+
+      case CLUE:
+        gc.setFill(Color.WHITE);
+        gc.fillRect(x, y, tileSize - gap, tileSize - gap);
+        gc.setFill(model.isClueSatisfied(row, col) ? Color.GREEN : Color.BLACK);
+        if (tileSize >= 10) {
+          if (clueFont == null || clueFont.getSize() != tileSize * 0.6) {
+            clueFont = Font.font(tileSize * 0.6);
+          }
+          gc.setFont(clueFont);
+          gc.setTextAlign(TextAlignment.CENTER);
+          gc.setTextBaseline(VPos.CENTER);
+          gc.fillText(
+              String.valueOf(renderedPuzzle.getClue(row, col)),
+              x + (tileSize - gap) / 2,
+              y + (tileSize - gap) / 2);
+        } else {
+          // Too small for a digit, so show the clue as a dot in its color
+          gc.fillRect(x + tileSize / 4, y + tileSize / 4, tileSize / 2, tileSize / 2);
+        }
+        break;
+    }
+  }
+}
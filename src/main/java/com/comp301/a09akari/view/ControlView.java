@@ -1,7 +1,10 @@
 package com.comp301.a09akari.view;
 
 import com.comp301.a09akari.controller.AlternateMvcController;
+import com.comp301.a09akari.model.Hint;
 import com.comp301.a09akari.model.Model;
+import com.comp301.a09akari.model.Puzzle;
+import javafx.application.Platform;
 import javafx.scene.Parent;
 import javafx.scene.control.Button;
 import javafx.scene.layout.HBox;
@@ -28,11 +31,37 @@ public class ControlView implements FXComponent {
     Button resetButton = new Button("Reset");
     resetButton.setOnAction(e -> controller.clickResetPuzzle());
 
+    Button undoButton = new Button("Undo");
+    undoButton.setOnAction(e -> controller.clickUndo());
+
+    Button redoButton = new Button("Redo");
+    redoButton.setOnAction(e -> controller.clickRedo());
+
     Button randomButton = new Button("Random");
     randomButton.setOnAction(e -> controller.clickRandPuzzle());
 
-    controls.getChildren().addAll(prevButton, nextButton, resetButton, randomButton);
+    Button hintButton = new Button("Hint");
+    hintButton.setOnAction(e -> requestHint());
+
+    controls
+        .getChildren()
+        .addAll(
+            prevButton, nextButton, resetButton, undoButton, redoButton, randomButton, hintButton);
 
     return controls;
   }
+
+  private void requestHint() {
+    Puzzle puzzle = controller.getActivePuzzle();
+    controller.getHint().thenAccept(hint -> Platform.runLater(() -> applyHint(puzzle, hint)));
+  }
+
+  /** Plays the hinted move, unless the board has changed since the hint was requested */
+  private void applyHint(Puzzle puzzle, Hint hint) {
+    if (hint == null || controller.getActivePuzzle() != puzzle) return;
+    boolean isLamp = controller.isLamp(hint.getRow(), hint.getCol());
+    if (isLamp == (hint.getAction() == Hint.Action.REMOVE_LAMP)) {
+      controller.clickCell(hint.getRow(), hint.getCol());
+    }
+  }
 }
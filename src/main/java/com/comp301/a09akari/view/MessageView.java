@@ -17,8 +17,22 @@ public class MessageView implements FXComponent {
     if (model.isSolved()) {
       message.setText("Puzzle Solved! 🎉");
     } else {
-      message.setText("Keep Going!");
+      message.setText("Keep Going! " + describeRemainingWork());
     }
     return message;
   }
+
+  private String describeRemainingWork() {
+    StringBuilder remaining = new StringBuilder();
+    appendCount(remaining, model.getUnlitCount(), "cell dark", "cells dark");
+    appendCount(remaining, model.getUnsatisfiedClueCount(), "clue wrong", "clues wrong");
+    appendCount(remaining, model.getIllegalLampCount(), "lamp conflicting", "lamps conflicting");
+    return remaining.toString();
+  }
+
+  private static void appendCount(StringBuilder text, int count, String singular, String plural) {
+    if (count == 0) return;
+    if (text.length() > 0) text.append(", ");
+    text.append(count).append(' ').append(count == 1 ? singular : plural);
+  }
 }
@@ -2,6 +2,8 @@ package com.comp301.a09akari.view;
 
 import com.comp301.a09akari.controller.AlternateMvcController;
 import com.comp301.a09akari.model.Model;
+import com.comp301.a09akari.model.ModelChange;
+import com.comp301.a09akari.model.Puzzle;
 import javafx.scene.Parent;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.StackPane;
@@ -9,10 +11,33 @@ import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Text;
 
-public class PuzzleView implements FXComponent {
+/**
+ * Grid view of the active puzzle. The nodes for every cell are built once per puzzle and kept
+ * across renders; a render only restyles the cells whose style differs from the one last applied,
+ * so a click touches a handful of nodes instead of rebuilding the whole grid. Given the ModelChange
+ * behind an update, refresh() goes further and only looks at the cells the change lists.
+ */
+public class PuzzleView implements BoardView {
+  /** Everything that decides how a cell is drawn */
+  private enum CellStyle {
+    WALL,
+    DARK,
+    LIT,
+    LAMP,
+    ILLEGAL_LAMP,
+    CLUE,
+    SATISFIED_CLUE,
+  }
+
   private final Model model;
   private final AlternateMvcController controller;
 
+  private Puzzle renderedPuzzle;
+  private GridPane grid;
+  private Rectangle[] tiles;
+  private Text[] clueTexts;
+  private CellStyle[] styles;
+
   public PuzzleView(Model model, AlternateMvcController controller) {
     this.model = model;
     this.controller = controller;
@@ -20,59 +45,127 @@ public class PuzzleView implements FXComponent {
 
   @Override
   public Parent render() {
-    GridPane grid = new GridPane();
+    Puzzle puzzle = model.getActivePuzzle();
+    if (puzzle != renderedPuzzle) {
+      build(puzzle);
+    }
+
+    for (int cell = 0; cell < styles.length; cell++) {
+      restyle(cell);
+    }
+    return grid;
+  }
+
+  /** Brings the grid up to date with the given change, restyling only the cells it lists */
+  @Override
+  public Parent refresh(ModelChange change) {
+    if (change.affectsWholeBoard() || model.getActivePuzzle() != renderedPuzzle) {
+      return render();
+    }
+    if (change.getRow() >= 0) {
+      restyle(change.getRow() * renderedPuzzle.getWidth() + change.getCol());
+    }
+    // Batches and undo list their lamps only here, with no single cell in getRow()/getCol()
+    for (int cell : change.getLampFlips()) {
+      restyle(cell);
+    }
+    for (int cell : change.getLitFlips()) {
+      restyle(cell);
+    }
+    for (int cell : change.getClueFlips()) {
+      restyle(cell);
+    }
+    for (int cell : change.getLegalityFlips()) {
+      restyle(cell);
+    }
+    return grid;
+  }
 
-    int rows = model.getActivePuzzle().getHeight();
-    int cols = model.getActivePuzzle().getWidth();
+  /** Creates the nodes for every cell of the puzzle, leaving them to be styled by render() */
+  private void build(Puzzle puzzle) {
+    int rows = puzzle.getHeight();
+    int cols = puzzle.getWidth();
+    grid = new GridPane();
+    tiles = new Rectangle[rows * cols];
+    clueTexts = new Text[rows * cols];
+    styles = new CellStyle[rows * cols];
+    renderedPuzzle = puzzle;
 
     for (int row = 0; row < rows; row++) {
       for (int col = 0; col < cols; col++) {
-        Rectangle cell = new Rectangle(40, 40);
+        int cell = row * cols + col;
         StackPane cellStack = new StackPane(); // To hold both the rectangle and text
 
-        switch (model.getActivePuzzle().getCellType(row, col)) {
+        switch (puzzle.getCellType(row, col)) {
           case CORRIDOR:
-            if (model.isLamp(row, col)) {
-              if (model.isLampIllegal(row, col)) {
-                cell.setFill(Color.RED); // Illegal lamp placement
-              } else {
-                cell.setFill(Color.ORANGE); // Valid lamp placement
-              }
-            } else {
-              cell.setFill(model.isLit(row, col) ? Color.YELLOW : Color.WHITE);
-            }
-            cellStack.getChildren().add(cell); // Add rectangle to stack
-
-            break;
-
           case WALL:
-            cell.setFill(Color.GRAY);
-            cellStack.getChildren().add(cell); // Add rectangle to stack
-
+            Rectangle tile = new Rectangle(40, 40);
+            int finalRow = row;
+            int finalCol = col;
+            tile.setOnMouseClicked(e -> controller.clickCell(finalRow, finalCol));
+            tiles[cell] = tile;
+            cellStack.getChildren().add(tile);
             break;
 
           case CLUE:
-            int clueNum = model.getActivePuzzle().getClue(row, col);
-            Text clueText = new Text(String.valueOf(clueNum));
-            clueText.setFill(Color.BLACK); // Ensure clue text is visible
+            Text clueText = new Text(String.valueOf(puzzle.getClue(row, col)));
+            clueTexts[cell] = clueText;
             cellStack.getChildren().add(clueText);
-
-            if (model.isClueSatisfied(row, col)) {
-              clueText.setFill(Color.GREEN); // Satisfied clue
-            }
-            // Add clue number
             break;
         }
 
-        // Add click handler
-        int finalRow = row;
-        int finalCol = col;
-        cell.setOnMouseClicked(e -> controller.clickCell(finalRow, finalCol));
-
         grid.add(cellStack, col, row); // Add stack to grid
       }
     }
+  }
 
-    return grid;
+  private void restyle(int cell) {
+    int row = cell / renderedPuzzle.getWidth();
+    int col = cell % renderedPuzzle.getWidth();
+    CellStyle style = styleOf(row, col);
+    if (style != styles[cell]) {
+      apply(cell, style);
+      styles[cell] = style;
+    }
+  }
+
+  private CellStyle styleOf(int row, int col) {
+    switch (renderedPuzzle.getCellType(row, col)) {
+      case CORRIDOR:
+        if (model.isLamp(row, col)) {
+          return model.isLampIllegal(row, col) ? CellStyle.ILLEGAL_LAMP : CellStyle.LAMP;
+        }
+        return model.isLit(row, col) ? CellStyle.LIT : CellStyle.DARK;
+      case CLUE:
+        return model.isClueSatisfied(row, col) ? CellStyle.SATISFIED_CLUE : CellStyle.CLUE;
+      default:
+        return CellStyle.WALL;
+    }
+  }
+
+  private void apply(int cell, CellStyle style) {
+    switch (style) {
+      case WALL:
+        tiles[cell].setFill(Color.GRAY);
+        break;
+      case DARK:
+        tiles[cell].setFill(Color.WHITE);
+        break;
+      case LIT:
+        tiles[cell].setFill(Color.YELLOW);
+        break;
+      case LAMP:
+        tiles[cell].setFill(Color.ORANGE); // Valid lamp placement
+        break;
+      case ILLEGAL_LAMP:
+        tiles[cell].setFill(Color.RED); // Illegal lamp placement
+        break;
+      case CLUE:
+        clueTexts[cell].setFill(Color.BLACK);
+        break;
+      case SATISFIED_CLUE:
+        clueTexts[cell].setFill(Color.GREEN);
+        break;
+    }
   }
 }
@@ -0,0 +1,88 @@
+package com.comp301.a09akari.view;
+
+import com.comp301.a09akari.model.Model;
+import com.comp301.a09akari.model.ModelChange;
+import com.comp301.a09akari.model.ModelObserver;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.animation.AnimationTimer;
+
+/**
+ * ModelObserver that holds changes back and passes them on to another observer on the FX thread,
+ * merged into one change, at most a given number of times per second. A burst of changes, from
+ * any thread, therefore costs the wrapped observer one update per frame at most.
+ */
+public class ThrottledObserver implements ModelObserver {
+  private final ModelObserver delegate;
+  private final long minIntervalNanos;
+  private final AnimationTimer timer;
+  private final List<ModelChange> pending;
+  private Model pendingModel;
+  private long lastDispatch;
+
+  /** Creates an observer passing changes on to the delegate at most 60 times per second */
+  public ThrottledObserver(ModelObserver delegate) {
+    this(delegate, 60);
+  }
+
+  /**
+   * Creates an observer passing changes on to the delegate at most maxUpdatesPerSecond times per
+   * second. Throws an IllegalArgumentException if the delegate is null or the rate is not positive
+   */
+  public ThrottledObserver(ModelObserver delegate, int maxUpdatesPerSecond) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("Delegate cannot be null");
+    }
+    if (maxUpdatesPerSecond < 1) {
+      throw new IllegalArgumentException("Update rate must be positive");
+    }
+    this.delegate = delegate;
+    this.minIntervalNanos = 1_000_000_000L / maxUpdatesPerSecond;
+    this.pending = new ArrayList<>();
+    this.timer =
+        new AnimationTimer() {
+          @Override
+          public void handle(long now) {
+            if (now - lastDispatch >= minIntervalNanos && dispatch()) {
+              lastDispatch = now;
+            }
+          }
+        };
+    timer.start();
+  }
+
+  @Override
+  public void update(Model model) {
+    update(model, null);
+  }
+
+  /** Queues the change; a null change means the model could not say what changed */
+  @Override
+  public synchronized void update(Model model, ModelChange change) {
+    pendingModel = model;
+    pending.add(change);
+  }
+
+  /** Stops dispatching; changes still queued are dropped */
+  public void stop() {
+    timer.stop();
+  }
+
+  /** Passes everything queued on to the delegate, returning false if nothing was queued */
+  private boolean dispatch() {
+    Model model;
+    List<ModelChange> changes;
+    synchronized (this) {
+      if (pending.isEmpty()) return false;
+      model = pendingModel;
+      changes = new ArrayList<>(pending);
+      pending.clear();
+    }
+    if (changes.contains(null)) {
+      delegate.update(model);
+    } else {
+      delegate.update(model, ModelChange.merge(changes));
+    }
+    return true;
+  }
+}
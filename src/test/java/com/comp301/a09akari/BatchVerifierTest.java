@@ -0,0 +1,129 @@
+package com.comp301.a09akari;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.comp301.a09akari.model.BacktrackingSolver;
+import com.comp301.a09akari.model.MappedPuzzleLibrary;
+import com.comp301.a09akari.model.PuzzleFormat;
+import com.comp301.a09akari.model.PuzzleImpl;
+import com.comp301.a09akari.model.PuzzleLibrary;
+import com.comp301.a09akari.model.PuzzleLibraryImpl;
+import com.comp301.a09akari.model.Solution;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Unit tests for BatchVerifier. */
+public class BatchVerifierTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void reportsEachCandidateInInputOrder() throws IOException {
+    PuzzleLibrary library = new PuzzleLibraryImpl();
+    library.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_01));
+    Solution solution = new BacktrackingSolver().solve(library.getPuzzle(0));
+    StringBuilder solved = new StringBuilder("0");
+    for (int r = 0; r < solution.getHeight(); r++) {
+      for (int c = 0; c < solution.getWidth(); c++) {
+        if (solution.isLamp(r, c)) solved.append(' ').append(r).append(',').append(c);
+      }
+    }
+
+    String input =
+        "# candidates\n"
+            + solved
+            + "\n"
+            + "0 1,4 1,6\n"
+            + "\n"
+            + "3x1:a2a 0,0 0,2\n"
+            + "0 0,4\n"
+            + "7 0,0\n";
+    StringWriter report = new StringWriter();
+    BatchVerifier verifier = new BatchVerifier(library, ForkJoinPool.commonPool());
+    assertEquals(5, verifier.verify(new StringReader(input), report));
+
+    String[] lines = report.toString().split("\n");
+    assertEquals(6, lines.length);
+    assertEquals("line\tstatus\tillegal\tunlit\tunsatisfied", lines[0]);
+    assertEquals("2\tsolved\t\t\t", lines[1]);
+    String[] unsolved = lines[2].split("\t", -1);
+    assertEquals("3", unsolved[0]);
+    assertEquals("unsolved", unsolved[1]);
+    assertEquals("1,4 1,6", unsolved[2]); // the two lamps see each other
+    assertEquals("3,5 5,3", unsolved[4]);
+    assertEquals("5\tsolved\t\t\t", lines[3]);
+    assertEquals("6\terror\tCannot place a lamp at 0,4", lines[4]);
+    assertEquals("7\terror\tNo puzzle 7 in the library", lines[5]);
+
+    assertEquals(2, verifier.getCount(BatchVerifier.Status.SOLVED));
+    assertEquals(1, verifier.getCount(BatchVerifier.Status.UNSOLVED));
+    assertEquals(2, verifier.getCount(BatchVerifier.Status.ERROR));
+  }
+
+  @Test
+  public void reusedBoardsStartEmptyForEachCandidate() throws IOException {
+    PuzzleLibrary library = new PuzzleLibraryImpl();
+    library.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_01));
+    String input = "0 1,4 1,6\n0 1,4 2,1 0,4\n0 1,6\n";
+    StringWriter report = new StringWriter();
+    // One thread, so every candidate lands on the same reused board
+    ForkJoinPool pool = new ForkJoinPool(1);
+    try {
+      new BatchVerifier(library, pool).verify(new StringReader(input), report);
+    } finally {
+      pool.shutdown();
+    }
+
+    String[] lines = report.toString().split("\n");
+    assertEquals("1,4 1,6", lines[1].split("\t", -1)[2]);
+    assertEquals("2\terror\tCannot place a lamp at 0,4", lines[2]);
+    // Neither the first candidate's lamp at 1,4 nor the failed line's lamp at 2,1 is left behind
+    String[] last = lines[3].split("\t", -1);
+    assertEquals("", last[2]);
+    assertTrue(last[3].contains("2,1"));
+  }
+
+  @Test
+  public void reportsOversizedGameIdsAsErrors() throws IOException {
+    StringWriter report = new StringWriter();
+    BatchVerifier verifier = new BatchVerifier(new PuzzleLibraryImpl(), ForkJoinPool.commonPool());
+    String input = "65535x65535:z 0,0\n3x1:a2a 0,0 0,2\n";
+    assertEquals(2, verifier.verify(new StringReader(input), report));
+    String[] lines = report.toString().split("\n");
+    assertEquals("1\terror\tPuzzle too large", lines[1]);
+    assertEquals("2\tsolved\t\t\t", lines[2]);
+  }
+
+  @Test
+  public void reportsCorruptPuzzleRecordsAsErrors() throws IOException {
+    Path file = folder.newFile("puzzles.akari").toPath();
+    PuzzleFormat.write(
+        List.of(new PuzzleImpl(SamplePuzzles.PUZZLE_01), new PuzzleImpl(SamplePuzzles.PUZZLE_02)),
+        file);
+    try (FileChannel channel =
+        FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      // Point the index entry of the second puzzle one byte into it
+      ByteBuffer offset = ByteBuffer.allocate(8);
+      channel.read(offset, 12 + 8);
+      offset.putLong(0, offset.getLong(0) + 1).rewind();
+      channel.write(offset, 12 + 8);
+    }
+
+    StringWriter report = new StringWriter();
+    BatchVerifier verifier =
+        new BatchVerifier(new MappedPuzzleLibrary(file), ForkJoinPool.commonPool());
+    assertEquals(1, verifier.verify(new StringReader("1 0,0\n"), report));
+    assertTrue(report.toString().contains("1\terror\tCorrupt puzzle record"));
+    assertEquals(1, verifier.getCount(BatchVerifier.Status.ERROR));
+  }
+}
@@ -0,0 +1,63 @@
+package com.comp301.a09akari.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.comp301.a09akari.SamplePuzzles;
+import org.junit.Test;
+
+/** Unit tests for BacktrackingSolver. */
+public class BacktrackingSolverTest {
+  private final Solver solver = new BacktrackingSolver();
+
+  static boolean solves(Puzzle puzzle, Solution solution) {
+    PuzzleLibrary library = new PuzzleLibraryImpl();
+    library.addPuzzle(puzzle);
+    Model model = new ModelImpl(library);
+    for (int r = 0; r < puzzle.getHeight(); r++) {
+      for (int c = 0; c < puzzle.getWidth(); c++) {
+        if (solution.isLamp(r, c)) model.addLamp(r, c);
+      }
+    }
+    return model.isSolved();
+  }
+
+  @Test
+  public void solvesEverySamplePuzzle() {
+    int[][][] boards = {
+      SamplePuzzles.PUZZLE_01,
+      SamplePuzzles.PUZZLE_02,
+      SamplePuzzles.PUZZLE_03,
+      SamplePuzzles.PUZZLE_04,
+      SamplePuzzles.PUZZLE_05
+    };
+    for (int[][] board : boards) {
+      Puzzle puzzle = new PuzzleImpl(board);
+      Solution solution = solver.solve(puzzle);
+      assertNotNull(solution);
+      assertTrue(solves(puzzle, solution));
+    }
+  }
+
+  @Test
+  public void returnsNullWhenThereIsNoSolution() {
+    // Both corridors can only be lit by lamps of their own, which over-satisfies both clues
+    assertNull(solver.solve(new PuzzleImpl(new int[][] {{6, 1}, {1, 6}})));
+  }
+
+  @Test
+  public void countsSolutionsUpToTheLimit() {
+    Puzzle corridor = new PuzzleImpl(new int[][] {{6, 6, 6}}); // one lamp anywhere lights it all
+    assertEquals(3, solver.countSolutions(corridor, 10));
+    assertEquals(2, solver.countSolutions(corridor, 2));
+    assertEquals(1, solver.countSolutions(new PuzzleImpl(SamplePuzzles.PUZZLE_02), 2));
+    assertEquals(0, solver.countSolutions(new PuzzleImpl(new int[][] {{6, 1}, {1, 6}}), 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNullPuzzle() {
+    solver.solve(null);
+  }
+}
@@ -0,0 +1,76 @@
+package com.comp301.a09akari.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.comp301.a09akari.SamplePuzzles;
+import org.junit.Test;
+
+/** Unit tests for CachingPuzzleLibrary. */
+public class CachingPuzzleLibraryTest {
+  /** Source of copies of the first sample puzzle which counts how often it is asked to load */
+  private static class CountingSource implements PuzzleSource {
+    private final int size;
+    private int loads;
+
+    CountingSource(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public Puzzle load(int index) {
+      loads++;
+      return new PuzzleImpl(SamplePuzzles.PUZZLE_01);
+    }
+  }
+
+  @Test
+  public void keepsOnlyTheMostRecentlyUsedPuzzles() {
+    CountingSource source = new CountingSource(1_000_000);
+    CachingPuzzleLibrary library = new CachingPuzzleLibrary(source, 2);
+    Puzzle first = library.getPuzzle(0);
+    library.getPuzzle(1);
+    assertSame(first, library.getPuzzle(0));
+    library.getPuzzle(2); // evicts puzzle 1, the least recently used
+    assertEquals(3, source.loads);
+    assertEquals(2, library.getCachedCount());
+
+    assertSame(first, library.getPuzzle(0));
+    library.getPuzzle(1);
+    assertEquals(4, source.loads);
+  }
+
+  @Test
+  public void addedPuzzlesComeAfterTheSource() {
+    CachingPuzzleLibrary library = new CachingPuzzleLibrary(new CountingSource(3), 1);
+    Puzzle extra = new PuzzleImpl(SamplePuzzles.PUZZLE_02);
+    library.addPuzzle(extra);
+    assertEquals(4, library.size());
+    assertSame(extra, library.getPuzzle(3));
+  }
+
+  @Test
+  public void modelOnlyLoadsThePuzzlesItVisits() {
+    CountingSource source = new CountingSource(1_000_000);
+    Model model = new ModelImpl(new CachingPuzzleLibrary(source, 16));
+    assertEquals(0, source.loads);
+    model.addLamp(1, 4);
+    model.setActivePuzzleIndex(999_999);
+    assertFalse(model.isLit(1, 4));
+    model.setActivePuzzleIndex(0);
+    assertTrue(model.isLit(1, 4));
+    assertEquals(2, source.loads);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void rejectsIndexPastTheEnd() {
+    new CachingPuzzleLibrary(new CountingSource(3), 2).getPuzzle(3);
+  }
+}
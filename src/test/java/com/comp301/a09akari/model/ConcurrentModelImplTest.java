@@ -0,0 +1,243 @@
+package com.comp301.a09akari.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.comp301.a09akari.SamplePuzzles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/** Unit and stress tests for ConcurrentModelImpl. */
+public class ConcurrentModelImplTest {
+  private static final int SIZE = 30;
+  private static final int WRITERS = 4;
+  private static final int READERS = 4;
+  private static final int TOGGLES_PER_WRITER = 20_000;
+
+  @Test
+  public void behavesLikeModelImplOnOneThread() {
+    PuzzleLibrary library = new PuzzleLibraryImpl();
+    library.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_01));
+    library.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_02));
+    Model expected = new ModelImpl(library);
+    Model actual = new ConcurrentModelImpl(library);
+    List<ModelChange> expectedChanges = record(expected);
+    List<ModelChange> actualChanges = record(actual);
+
+    for (Model model : new Model[] {expected, actual}) {
+      model.addLamp(1, 4);
+      model.addLamp(4, 4);
+      model.beginBatch();
+      model.addLamp(0, 0);
+      model.removeLamp(4, 4);
+      model.commitBatch();
+      model.setActivePuzzleIndex(1);
+      model.addLamp(0, 1);
+      model.resetPuzzle();
+      model.setActivePuzzleIndex(0);
+    }
+    assertSameState(expected, actual);
+    assertEquals(expectedChanges.size(), actualChanges.size());
+    for (int i = 0; i < expectedChanges.size(); i++) {
+      assertEquals(expectedChanges.get(i).getType(), actualChanges.get(i).getType());
+      assertEquals(
+          sorted(expectedChanges.get(i).getLitFlips()), sorted(actualChanges.get(i).getLitFlips()));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void isLampIllegalRejectsCellsWithoutALamp() {
+    PuzzleLibrary library = new PuzzleLibraryImpl();
+    library.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_01));
+    new ConcurrentModelImpl(library).isLampIllegal(0, 0);
+  }
+
+  @Test
+  public void changesMadeByObserversAreDeliveredInOrder() {
+    PuzzleLibrary library = new PuzzleLibraryImpl();
+    library.addPuzzle(new PuzzleImpl(new int[][] {{6, 6, 6, 6}}));
+    Model model = new ConcurrentModelImpl(library);
+    model.addObserver(
+        new ModelObserver() {
+          @Override
+          public void update(Model m) {}
+
+          @Override
+          public void update(Model m, ModelChange change) {
+            if (change.getCol() == 0) m.addLamp(0, 3);
+          }
+        });
+    List<ModelChange> changes = record(model);
+
+    model.addLamp(0, 0);
+    // The lamp the first observer added must not overtake the change it was reacting to
+    assertEquals(2, changes.size());
+    assertEquals(0, changes.get(0).getCol());
+    assertEquals(3, changes.get(1).getCol());
+  }
+
+  /**
+   * Writers toggle lamps on disjoint cells of one board while readers query it and another thread
+   * keeps adding and removing observers. Afterwards the counters must match a single-threaded
+   * replay of the final lamps, and an observer mirroring the lamp flips must have ended up with
+   * exactly those lamps.
+   */
+  @Test
+  public void survivesConcurrentReadersWritersAndObservers() throws InterruptedException {
+    Puzzle puzzle = new PuzzleGenerator(21).generate(SIZE, SIZE, PuzzleGenerator.Difficulty.EASY);
+    PuzzleLibrary library = new PuzzleLibraryImpl();
+    library.addPuzzle(puzzle);
+    ConcurrentModelImpl model = new ConcurrentModelImpl(library);
+
+    List<Integer> corridors = new ArrayList<>();
+    for (int cell = 0; cell < SIZE * SIZE; cell++) {
+      if (puzzle.getCellType(cell / SIZE, cell % SIZE) == CellType.CORRIDOR) corridors.add(cell);
+    }
+    boolean[] mirror = new boolean[SIZE * SIZE];
+    model.addObserver(
+        new ModelObserver() {
+          @Override
+          public void update(Model m) {}
+
+          @Override
+          public void update(Model m, ModelChange change) {
+            for (int cell : change.getLampFlips()) {
+              mirror[cell] = !mirror[cell];
+            }
+          }
+        });
+
+    boolean[] expectedLamps = new boolean[SIZE * SIZE];
+    ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    AtomicBoolean writing = new AtomicBoolean(true);
+    AtomicInteger writersLeft = new AtomicInteger(WRITERS);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int w = 0; w < WRITERS; w++) {
+      int writer = w;
+      threads.add(
+          new Thread(
+              () -> {
+                Random random = new Random(writer);
+                List<Integer> mine = new ArrayList<>();
+                for (int i = writer; i < corridors.size(); i += WRITERS) {
+                  mine.add(corridors.get(i));
+                }
+                await(start);
+                for (int i = 0; i < TOGGLES_PER_WRITER; i++) {
+                  int cell = mine.get(random.nextInt(mine.size()));
+                  if (expectedLamps[cell]) {
+                    model.removeLamp(cell / SIZE, cell % SIZE);
+                  } else {
+                    model.addLamp(cell / SIZE, cell % SIZE);
+                  }
+                  expectedLamps[cell] = !expectedLamps[cell];
+                }
+                if (writersLeft.decrementAndGet() == 0) writing.set(false);
+              }));
+    }
+    for (int r = 0; r < READERS; r++) {
+      int reader = r;
+      threads.add(
+          new Thread(
+              () -> {
+                Random random = new Random(100 + reader);
+                await(start);
+                while (writing.get()) {
+                  int cell = corridors.get(random.nextInt(corridors.size()));
+                  model.isLit(cell / SIZE, cell % SIZE);
+                  model.isLamp(cell / SIZE, cell % SIZE);
+                  int unlit = model.getUnlitCount();
+                  if (unlit < 0 || unlit > corridors.size()) {
+                    throw new AssertionError("Unlit count out of range: " + unlit);
+                  }
+                  model.isSolved();
+                }
+              }));
+    }
+    threads.add(
+        new Thread(
+            () -> {
+              ModelObserver extra = m -> {};
+              await(start);
+              while (writing.get()) {
+                model.addObserver(extra);
+                model.removeObserver(extra);
+              }
+            }));
+
+    for (Thread thread : threads) {
+      thread.setUncaughtExceptionHandler((t, e) -> failures.add(e));
+      thread.start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(failures.toString(), failures.isEmpty());
+
+    ModelImpl replay = new ModelImpl(library);
+    for (int cell : corridors) {
+      if (expectedLamps[cell]) replay.addLamp(cell / SIZE, cell % SIZE);
+      assertEquals(expectedLamps[cell], mirror[cell]);
+    }
+    assertSameState(replay, model);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static List<ModelChange> record(Model model) {
+    List<ModelChange> changes = new ArrayList<>();
+    model.addObserver(
+        new ModelObserver() {
+          @Override
+          public void update(Model m) {}
+
+          @Override
+          public void update(Model m, ModelChange change) {
+            changes.add(change);
+          }
+        });
+    return changes;
+  }
+
+  private static List<Integer> sorted(int[] cells) {
+    List<Integer> list = new ArrayList<>();
+    for (int cell : cells) {
+      list.add(cell);
+    }
+    list.sort(null);
+    return list;
+  }
+
+  private static void assertSameState(Model expected, Model actual) {
+    assertEquals(expected.getActivePuzzleIndex(), actual.getActivePuzzleIndex());
+    assertEquals(expected.getUnlitCount(), actual.getUnlitCount());
+    assertEquals(expected.getUnsatisfiedClueCount(), actual.getUnsatisfiedClueCount());
+    assertEquals(expected.getIllegalLampCount(), actual.getIllegalLampCount());
+    assertEquals(expected.isSolved(), actual.isSolved());
+    Puzzle puzzle = expected.getActivePuzzle();
+    for (int r = 0; r < puzzle.getHeight(); r++) {
+      for (int c = 0; c < puzzle.getWidth(); c++) {
+        if (puzzle.getCellType(r, c) != CellType.CORRIDOR) continue;
+        assertEquals(expected.isLit(r, c), actual.isLit(r, c));
+        assertEquals(expected.isLamp(r, c), actual.isLamp(r, c));
+        if (expected.isLamp(r, c)) {
+          assertEquals(expected.isLampIllegal(r, c), actual.isLampIllegal(r, c));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package com.comp301.a09akari.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.comp301.a09akari.SamplePuzzles;
+import com.comp301.a09akari.controller.ControllerImpl;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/** Unit tests for LampSnapshot and undoing through snapshots. */
+public class LampSnapshotTest {
+  @Test
+  public void editsLeaveEarlierSnapshotsUntouched() {
+    LampSnapshot empty = LampSnapshot.empty(7, 7);
+    LampSnapshot one = empty.with(12);
+    LampSnapshot two = one.with(40);
+    LampSnapshot back = two.without(12);
+
+    assertEquals(0, empty.getLampCount());
+    assertFalse(empty.contains(12));
+    assertTrue(one.contains(12));
+    assertFalse(one.contains(40));
+    assertEquals(2, two.getLampCount());
+    assertFalse(back.contains(12));
+    assertTrue(back.isLamp(5, 5));
+    assertSame(two, two.with(40));
+    assertSame(two, two.without(0));
+  }
+
+  @Test
+  public void boardSnapshotsCatchUpWithLampsToggledSinceTheLast() {
+    BoardState state = new BoardState(new PuzzleImpl(SamplePuzzles.PUZZLE_01));
+    state.addLamp(11);
+    LampSnapshot first = state.getSnapshot();
+    assertSame(first, state.getSnapshotIfCurrent());
+    state.addLamp(13);
+    state.addLamp(30);
+    state.removeLamp(30);
+    state.removeLamp(11);
+    assertNull(state.getSnapshotIfCurrent());
+
+    LampSnapshot second = state.getSnapshot();
+    assertEquals(1, second.getLampCount());
+    assertTrue(second.contains(13));
+    assertFalse(second.contains(11));
+    assertTrue(first.contains(11));
+    assertSame(second, state.getSnapshot());
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void isLampRejectsPositionsOutOfBounds() {
+    LampSnapshot.empty(7, 7).isLamp(7, 0);
+  }
+
+  /** A 300 x 300 board needs two levels of inner nodes, so every path through the trie is used */
+  @Test
+  public void matchesABitSetOnLargeBoards() {
+    int cells = 300 * 300;
+    Random random = new Random(5);
+    BitSet expected = new BitSet(cells);
+    LampSnapshot snapshot = LampSnapshot.empty(300, 300);
+    List<BitSet> history = new ArrayList<>();
+    List<LampSnapshot> snapshots = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      int cell = random.nextInt(cells);
+      if (expected.get(cell)) {
+        expected.clear(cell);
+        snapshot = snapshot.without(cell);
+      } else {
+        expected.set(cell);
+        snapshot = snapshot.with(cell);
+      }
+      if (i % 100 == 0) {
+        history.add((BitSet) expected.clone());
+        snapshots.add(snapshot);
+      }
+    }
+
+    assertEquals(expected.cardinality(), snapshot.getLampCount());
+    int lamp = snapshot.nextLamp(0);
+    for (int cell = expected.nextSetBit(0); cell >= 0; cell = expected.nextSetBit(cell + 1)) {
+      assertEquals(cell, lamp);
+      lamp = snapshot.nextLamp(lamp + 1);
+    }
+    assertEquals(-1, lamp);
+
+    for (int i = 0; i < snapshots.size(); i++) {
+      BitSet difference = (BitSet) history.get(i).clone();
+      difference.xor(expected);
+      BitSet reported = new BitSet(cells);
+      LampSnapshot.forEachDifference(snapshots.get(i), snapshot, reported::set);
+      assertEquals(difference, reported);
+    }
+  }
+
+  @Test
+  public void restoringAppliesOnlyTheDifferenceAsOneChange() {
+    PuzzleLibrary library = new PuzzleLibraryImpl();
+    library.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_01));
+    Model model = new ModelImpl(library);
+    model.addLamp(1, 4);
+    LampSnapshot saved = model.getLampSnapshot();
+    model.addLamp(4, 4);
+    model.removeLamp(1, 4);
+    model.addLamp(2, 1);
+
+    List<ModelChange> changes = new ArrayList<>();
+    model.addObserver(
+        new ModelObserver() {
+          @Override
+          public void update(Model m) {}
+
+          @Override
+          public void update(Model m, ModelChange change) {
+            changes.add(change);
+          }
+        });
+    model.restoreLampSnapshot(saved);
+
+    assertEquals(1, changes.size());
+    assertEquals(ModelChange.Type.BATCH, changes.get(0).getType());
+    assertEquals(3, changes.get(0).getLampFlips().length);
+    assertTrue(model.isLamp(1, 4));
+    assertFalse(model.isLamp(4, 4));
+    assertFalse(model.isLamp(2, 1));
+    assertEquals(1, model.getLampSnapshot().getLampCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void restoringRejectsLampsOutsideCorridors() {
+    PuzzleLibrary library = new PuzzleLibraryImpl();
+    library.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_01));
+    // The cell at (0, 4) is a clue, so this snapshot cannot have come from the puzzle
+    new ModelImpl(library).restoreLampSnapshot(LampSnapshot.empty(7, 7).with(4));
+  }
+
+  @Test
+  public void controllerUndoesAndRedoesEachPuzzleSeparately() {
+    PuzzleLibrary library = new PuzzleLibraryImpl();
+    library.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_01));
+    library.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_02));
+    for (Model model : new Model[] {new ModelImpl(library), new ConcurrentModelImpl(library)}) {
+      ControllerImpl controller = new ControllerImpl(model);
+      controller.clickCell(1, 4);
+      controller.clickCell(4, 4);
+      controller.clickResetPuzzle();
+      assertEquals(0, model.getLampSnapshot().getLampCount());
+
+      controller.clickUndo();
+      assertTrue(model.isLamp(1, 4) && model.isLamp(4, 4));
+      controller.clickUndo();
+      assertTrue(model.isLamp(1, 4));
+      assertFalse(model.isLamp(4, 4));
+
+      controller.clickNextPuzzle();
+      controller.clickUndo(); // nothing to undo on this puzzle
+      controller.clickPrevPuzzle();
+
+      controller.clickRedo();
+      assertTrue(model.isLamp(4, 4));
+      controller.clickCell(2, 1); // a new change drops the reset that could have been redone
+      controller.clickRedo();
+      assertEquals(3, model.getLampSnapshot().getLampCount());
+      controller.clickUndo();
+      controller.clickUndo();
+      controller.clickUndo();
+      assertEquals(0, model.getLampSnapshot().getLampCount());
+    }
+  }
+}
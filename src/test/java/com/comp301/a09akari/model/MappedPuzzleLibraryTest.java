@@ -0,0 +1,128 @@
+package com.comp301.a09akari.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.comp301.a09akari.SamplePuzzles;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Unit tests for PuzzleFormat and MappedPuzzleLibrary. */
+public class MappedPuzzleLibraryTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private static List<Puzzle> samples() {
+    List<Puzzle> puzzles = new ArrayList<>();
+    puzzles.add(new PuzzleImpl(SamplePuzzles.PUZZLE_01));
+    puzzles.add(new PuzzleImpl(SamplePuzzles.PUZZLE_02));
+    puzzles.add(new PuzzleImpl(SamplePuzzles.PUZZLE_03));
+    puzzles.add(new PuzzleImpl(SamplePuzzles.PUZZLE_04));
+    puzzles.add(new PuzzleImpl(SamplePuzzles.PUZZLE_05));
+    puzzles.add(new PuzzleImpl(new int[][] {{6}}));
+    return puzzles;
+  }
+
+  private Path writeSamples() throws IOException {
+    Path file = folder.newFile("samples.akari").toPath();
+    PuzzleFormat.write(samples(), file);
+    return file;
+  }
+
+  @Test
+  public void readsBackEveryCellOfEveryPuzzle() throws IOException {
+    List<Puzzle> expected = samples();
+    PuzzleLibrary library = new MappedPuzzleLibrary(writeSamples());
+    assertEquals(expected.size(), library.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Puzzle want = expected.get(i);
+      Puzzle got = library.getPuzzle(i);
+      assertEquals(want.getWidth(), got.getWidth());
+      assertEquals(want.getHeight(), got.getHeight());
+      for (int r = 0; r < want.getHeight(); r++) {
+        for (int c = 0; c < want.getWidth(); c++) {
+          assertEquals(want.getCellType(r, c), got.getCellType(r, c));
+          if (want.getCellType(r, c) == CellType.CLUE) {
+            assertEquals(want.getClue(r, c), got.getClue(r, c));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void readsPuzzlesFromEveryChunk() throws IOException {
+    List<Puzzle> expected = samples();
+    // Small enough that some chunks hold one puzzle and others several
+    PuzzleLibrary library = new MappedPuzzleLibrary(writeSamples(), 40);
+    for (int i = expected.size() - 1; i >= 0; i--) {
+      assertEquals(expected.get(i).getWidth(), library.getPuzzle(i).getWidth());
+      assertEquals(expected.get(i).getHeight(), library.getPuzzle(i).getHeight());
+    }
+  }
+
+  @Test
+  public void rejectsRecordsTheIndexGetsWrong() throws IOException {
+    Path file = writeSamples();
+    try (FileChannel channel =
+        FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.allocate(8);
+      channel.read(buffer, 12 + 8);
+      // Start the second puzzle one byte late, so neither it nor the first has the right length
+      buffer.putLong(0, buffer.getLong(0) + 1).rewind();
+      channel.write(buffer, 12 + 8);
+    }
+    try {
+      new MappedPuzzleLibrary(file).getPuzzle(1);
+      fail();
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().startsWith("Corrupt puzzle record"));
+    }
+  }
+
+  @Test
+  public void packsThreeBitsPerCell() throws IOException {
+    Path file = writeSamples();
+    long cells = 0;
+    for (Puzzle puzzle : samples()) {
+      cells += (long) puzzle.getWidth() * puzzle.getHeight();
+    }
+    // Header, index and a four byte size per puzzle, plus at most one byte of padding each
+    long overhead = 12 + 8 * 7 + 4 * 6;
+    long size = Files.size(file);
+    assertTrue(size >= overhead + cells * 3 / 8 && size <= overhead + cells * 3 / 8 + 6);
+  }
+
+  @Test
+  public void writesImmutableLists() throws IOException {
+    Path file = folder.newFile("one.akari").toPath();
+    PuzzleFormat.write(List.of(new PuzzleImpl(SamplePuzzles.PUZZLE_01)), file);
+    assertEquals(7, new MappedPuzzleLibrary(file).getPuzzle(0).getWidth());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void isReadOnly() throws IOException {
+    new MappedPuzzleLibrary(writeSamples()).addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_01));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void rejectsIndexPastTheEnd() throws IOException {
+    new MappedPuzzleLibrary(writeSamples()).getPuzzle(6);
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsFilesInAnotherFormat() throws IOException {
+    Path file = folder.newFile("other.txt").toPath();
+    Files.write(file, "7x7:not a puzzle file".getBytes());
+    new MappedPuzzleLibrary(file);
+  }
+}
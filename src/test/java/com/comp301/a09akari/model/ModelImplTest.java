@@ -0,0 +1,221 @@
+package com.comp301.a09akari.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.comp301.a09akari.SamplePuzzles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Unit tests for ModelImpl. */
+public class ModelImplTest {
+  private Model model;
+
+  @Before
+  public void setUp() {
+    PuzzleLibrary library = new PuzzleLibraryImpl();
+    library.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_01));
+    library.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_02));
+    model = new ModelImpl(library);
+  }
+
+  @Test
+  public void lampLightsItsRowAndColumnUpToWalls() {
+    model.addLamp(1, 4);
+    assertTrue(model.isLit(1, 4));
+    assertTrue(model.isLit(1, 6));
+    assertTrue(model.isLit(6, 4));
+    assertFalse(model.isLit(1, 2)); // blocked by the wall at (1, 3)
+    assertFalse(model.isLit(0, 5));
+  }
+
+  @Test
+  public void removingOneOfTwoLampsKeepsSharedCellsLit() {
+    model.addLamp(1, 4);
+    model.addLamp(4, 4);
+    model.removeLamp(1, 4);
+    assertTrue(model.isLit(2, 4));
+    assertFalse(model.isLit(1, 5));
+  }
+
+  @Test
+  public void addingTheSameLampTwiceIsIdempotent() {
+    model.addLamp(1, 4);
+    model.addLamp(1, 4);
+    model.removeLamp(1, 4);
+    assertFalse(model.isLit(1, 4));
+    assertFalse(model.isLit(1, 6));
+  }
+
+  @Test
+  public void lightingIsTrackedPerPuzzle() {
+    model.addLamp(1, 4);
+    model.setActivePuzzleIndex(1);
+    assertFalse(model.isLit(1, 4));
+    model.setActivePuzzleIndex(0);
+    assertTrue(model.isLit(1, 4));
+    model.resetPuzzle();
+    assertFalse(model.isLit(1, 4));
+  }
+
+  @Test
+  public void lampsSharingASegmentAreIllegal() {
+    model.addLamp(1, 0);
+    model.addLamp(1, 4);
+    assertFalse(model.isLampIllegal(1, 0)); // the wall at (1, 3) separates them
+    model.addLamp(1, 2);
+    assertTrue(model.isLampIllegal(1, 0));
+    assertTrue(model.isLampIllegal(1, 2));
+    assertFalse(model.isLampIllegal(1, 4));
+    model.removeLamp(1, 2);
+    assertFalse(model.isLampIllegal(1, 0));
+  }
+
+  @Test
+  public void remainingWorkCountersFollowLampChanges() {
+    assertEquals(41, model.getUnlitCount());
+    assertEquals(3, model.getUnsatisfiedClueCount()); // the 0 clue starts out satisfied
+    assertEquals(0, model.getIllegalLampCount());
+
+    model.addLamp(1, 0); // next to the 0 clue at (2, 0)
+    model.addLamp(1, 2);
+    assertEquals(4, model.getUnsatisfiedClueCount());
+    assertEquals(2, model.getIllegalLampCount());
+    assertEquals(41 - 9, model.getUnlitCount());
+    assertFalse(model.isSolved());
+
+    model.resetPuzzle();
+    assertEquals(41, model.getUnlitCount());
+    assertEquals(3, model.getUnsatisfiedClueCount());
+    assertEquals(0, model.getIllegalLampCount());
+  }
+
+  @Test
+  public void hintRemovesAnIllegalLampFirst() {
+    model.addLamp(1, 0);
+    model.addLamp(1, 2);
+    Hint hint = model.getHint().join();
+    assertEquals(Hint.Action.REMOVE_LAMP, hint.getAction());
+    assertEquals(1, hint.getRow());
+    assertTrue(hint.getCol() == 0 || hint.getCol() == 2);
+  }
+
+  @Test
+  public void hintIsCachedUntilTheLampsChange() {
+    assertSame(model.getHint(), model.getHint());
+    Hint hint = model.getHint().join();
+    model.addLamp(1, 4);
+    model.removeLamp(1, 4);
+    assertNotSame(hint, model.getHint().join());
+  }
+
+  @Test
+  public void followingHintsSolvesEverySamplePuzzle() {
+    for (int index = 0; index < model.getPuzzleLibrarySize(); index++) {
+      model.setActivePuzzleIndex(index);
+      model.addLamp(0, 6); // a wrong start the hints have to undo
+      for (int moves = 0; moves < 100 && !model.isSolved(); moves++) {
+        Hint hint = model.getHint().join();
+        if (hint.getAction() == Hint.Action.ADD_LAMP) {
+          model.addLamp(hint.getRow(), hint.getCol());
+        } else {
+          model.removeLamp(hint.getRow(), hint.getCol());
+        }
+      }
+      assertTrue(model.isSolved());
+      assertNull(model.getHint().join());
+    }
+  }
+
+  @Test
+  public void observersReceiveTheCellsEachChangeFlipped() {
+    List<ModelChange> changes = new ArrayList<>();
+    model.addObserver(
+        new ModelObserver() {
+          @Override
+          public void update(Model m) {}
+
+          @Override
+          public void update(Model m, ModelChange change) {
+            changes.add(change);
+          }
+        });
+
+    model.addLamp(1, 0);
+    ModelChange added = changes.get(0);
+    assertEquals(ModelChange.Type.LAMP_ADDED, added.getType());
+    assertEquals(1, added.getRow());
+    int[] lit = added.getLitFlips();
+    Arrays.sort(lit);
+    assertTrue(Arrays.equals(new int[] {0, 7, 8, 9}, lit)); // (0, 0) and (1, 0) to (1, 2)
+    assertTrue(Arrays.equals(new int[] {14}, added.getClueFlips())); // the 0 clue at (2, 0)
+
+    model.addLamp(1, 2);
+    assertEquals(2, changes.get(1).getLegalityFlips().length); // both lamps are now illegal
+
+    model.addLamp(1, 2); // already there, so nothing is reported
+    assertEquals(2, changes.size());
+
+    model.resetPuzzle();
+    assertEquals(ModelChange.Type.PUZZLE_RESET, changes.get(2).getType());
+    assertEquals(9, changes.get(2).getLitFlips().length);
+
+    model.setActivePuzzleIndex(1);
+    assertTrue(changes.get(3).affectsWholeBoard());
+  }
+
+  @Test
+  public void batchesNotifyObserversOnceWithTheNetChange() {
+    List<ModelChange> changes = new ArrayList<>();
+    model.addObserver(
+        new ModelObserver() {
+          @Override
+          public void update(Model m) {}
+
+          @Override
+          public void update(Model m, ModelChange change) {
+            changes.add(change);
+          }
+        });
+
+    model.beginBatch();
+    model.addLamp(1, 0);
+    model.beginBatch();
+    model.addLamp(1, 4);
+    model.removeLamp(1, 0);
+    model.commitBatch();
+    assertTrue(changes.isEmpty());
+    model.commitBatch();
+
+    assertEquals(1, changes.size());
+    ModelChange batch = changes.get(0);
+    assertEquals(ModelChange.Type.BATCH, batch.getType());
+    assertTrue(Arrays.equals(new int[] {11}, batch.getLampFlips())); // (1, 0) came and went
+    assertEquals(41 - model.getUnlitCount(), batch.getLitFlips().length);
+
+    model.beginBatch();
+    model.commitBatch(); // nothing changed, so nothing is reported
+    assertEquals(1, changes.size());
+  }
+
+  @Test
+  public void addedPuzzlesGoToTheEndOfTheLibrary() {
+    int index = model.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_03));
+    assertEquals(2, index);
+    assertEquals(3, model.getPuzzleLibrarySize());
+    model.setActivePuzzleIndex(index);
+    assertEquals(SamplePuzzles.PUZZLE_03[0].length, model.getActivePuzzle().getWidth());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void commitWithoutBatchThrows() {
+    model.commitBatch();
+  }
+}
@@ -0,0 +1,44 @@
+package com.comp301.a09akari.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.comp301.a09akari.SamplePuzzles;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+/** Unit tests for ParallelSolver. */
+public class ParallelSolverTest {
+  private final Solver solver = new ParallelSolver(new ForkJoinPool(4));
+
+  @Test
+  public void solvesSamplePuzzles() {
+    Puzzle puzzle = new PuzzleImpl(SamplePuzzles.PUZZLE_04);
+    assertTrue(BacktrackingSolverTest.solves(puzzle, solver.solve(puzzle)));
+  }
+
+  @Test
+  public void countsTheSameSolutionsAsTheSequentialSolver() {
+    Puzzle open = new PuzzleImpl(new int[][] {{6, 6, 6}, {6, 5, 6}, {6, 6, 6}});
+    assertEquals(
+        new BacktrackingSolver().countSolutions(open, 100), solver.countSolutions(open, 100));
+    assertEquals(2, solver.countSolutions(open, 2));
+  }
+
+  @Test
+  public void agreesWithTheSequentialSolverOnBoardsThatFork() {
+    // Walls on every other row and column give 24945 solutions, so every branch is forked out
+    int[][] lattice = new int[7][7];
+    for (int r = 0; r < 7; r++) {
+      for (int c = 0; c < 7; c++) {
+        lattice[r][c] = r % 2 == 1 && c % 2 == 1 ? 5 : 6;
+      }
+    }
+    Puzzle open = new PuzzleImpl(lattice);
+    Solver sequential = new BacktrackingSolver();
+    assertEquals(sequential.countSolutions(open, 30000), solver.countSolutions(open, 30000));
+
+    Puzzle generated = new PuzzleGenerator(7).generate(15, 15, PuzzleGenerator.Difficulty.HARD);
+    assertEquals(sequential.solve(generated), solver.solve(generated));
+  }
+}
@@ -0,0 +1,75 @@
+package com.comp301.a09akari.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/** Unit tests for PuzzleGenerator and PuzzlePool. */
+public class PuzzleGeneratorTest {
+  @Test
+  public void generatesUniquePuzzlesAtEachDifficulty() {
+    PuzzleGenerator generator = new PuzzleGenerator(301);
+    UniquenessChecker checker = new UniquenessChecker();
+    for (PuzzleGenerator.Difficulty difficulty : PuzzleGenerator.Difficulty.values()) {
+      int matched = 0;
+      for (int i = 0; i < 10; i++) {
+        Puzzle puzzle = generator.generate(12, 10, difficulty);
+        assertEquals(12, puzzle.getWidth());
+        assertEquals(10, puzzle.getHeight());
+        assertEquals(UniquenessChecker.Verdict.UNIQUE, checker.check(puzzle));
+        if (PuzzleGenerator.grade(puzzle) == difficulty) matched++;
+      }
+      // Hard puzzles are not always reachable, but should be the rule rather than the exception
+      assertTrue(difficulty + " matched " + matched + " of 10", matched >= 8);
+    }
+  }
+
+  @Test
+  public void sameSeedGivesSamePuzzles() {
+    Puzzle first = new PuzzleGenerator(7).generate(8, 8, PuzzleGenerator.Difficulty.HARD);
+    Puzzle second = new PuzzleGenerator(7).generate(8, 8, PuzzleGenerator.Difficulty.HARD);
+    for (int r = 0; r < 8; r++) {
+      for (int c = 0; c < 8; c++) {
+        assertEquals(first.getCellType(r, c), second.getCellType(r, c));
+      }
+    }
+  }
+
+  @Test
+  public void gradesByTheDeductionNeeded() {
+    // A 1 clue between two cells can only be settled by trying both
+    Puzzle ambiguous = new PuzzleImpl(new int[][] {{6, 1, 6}});
+    assertEquals(PuzzleGenerator.Difficulty.HARD, PuzzleGenerator.grade(ambiguous));
+    Puzzle forced = new PuzzleImpl(new int[][] {{6, 2, 6}});
+    assertEquals(PuzzleGenerator.Difficulty.EASY, PuzzleGenerator.grade(forced));
+  }
+
+  @Test
+  public void poolFillsInTheBackgroundWithoutBlocking() throws InterruptedException {
+    PuzzlePool pool =
+        new PuzzlePool(new PuzzleGenerator(1), 7, 7, PuzzleGenerator.Difficulty.EASY, 2);
+    try {
+      long deadline = System.currentTimeMillis() + 10_000;
+      while (pool.getReadyCount() < 2 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertNotNull(pool.poll());
+      assertNotNull(pool.poll());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void poolReturnsNullRatherThanWaiting() {
+    PuzzlePool pool =
+        new PuzzlePool(new PuzzleGenerator(1), 1, 1, PuzzleGenerator.Difficulty.EASY, 1);
+    pool.shutdown();
+    // Drain whatever the worker managed to produce before it stopped
+    pool.poll();
+    assertNull(pool.poll());
+  }
+}
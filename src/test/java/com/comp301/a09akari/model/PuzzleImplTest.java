@@ -0,0 +1,78 @@
+package com.comp301.a09akari.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.comp301.a09akari.SamplePuzzles;
+import org.junit.Test;
+
+/** Unit tests for PuzzleImpl. */
+public class PuzzleImplTest {
+  @Test
+  public void copiesTheBoardItIsGiven() {
+    int[][] board = {
+      {6, 1},
+      {5, 6}
+    };
+    PuzzleImpl puzzle = new PuzzleImpl(board);
+    board[0][0] = 5;
+    board[0][1] = 6;
+    assertEquals(CellType.CORRIDOR, puzzle.getCellType(0, 0));
+    assertEquals(1, puzzle.getClue(0, 1));
+    assertEquals(CellType.WALL, puzzle.getCellType(1, 0));
+  }
+
+  @Test
+  public void fastPathAccessorsAgreeWithTheCheckedOnes() {
+    PuzzleImpl puzzle = new PuzzleImpl(SamplePuzzles.PUZZLE_05);
+    int width = puzzle.getWidth();
+    for (int cell = 0; cell < width * puzzle.getHeight(); cell++) {
+      int r = cell / width, c = cell % width;
+      assertEquals(puzzle.getCellType(r, c), puzzle.getCellType(cell));
+      assertEquals(SamplePuzzles.PUZZLE_05[r][c], puzzle.getCellValue(cell));
+    }
+  }
+
+  @Test
+  public void cellValuesMatchForOtherPuzzleImplementations() {
+    PuzzleImpl puzzle = new PuzzleImpl(SamplePuzzles.PUZZLE_03);
+    Puzzle view =
+        new Puzzle() {
+          @Override
+          public int getWidth() {
+            return puzzle.getWidth();
+          }
+
+          @Override
+          public int getHeight() {
+            return puzzle.getHeight();
+          }
+
+          @Override
+          public CellType getCellType(int r, int c) {
+            return puzzle.getCellType(r, c);
+          }
+
+          @Override
+          public int getClue(int r, int c) {
+            return puzzle.getClue(r, c);
+          }
+        };
+    assertArrayEquals(PuzzleImpl.cellValues(puzzle), PuzzleImpl.cellValues(view));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsRaggedBoards() {
+    new PuzzleImpl(new int[][] {{6, 6}, {6}});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsUnknownCellValues() {
+    new PuzzleImpl(new int[][] {{6, 7}});
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void checkedAccessorsRejectPositionsOffTheBoard() {
+    new PuzzleImpl(SamplePuzzles.PUZZLE_01).getCellType(0, -1);
+  }
+}
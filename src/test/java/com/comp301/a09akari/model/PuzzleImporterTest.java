@@ -0,0 +1,102 @@
+package com.comp301.a09akari.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/** Unit tests for PuzzleImporter. */
+public class PuzzleImporterTest {
+  private static void assertBoard(int[][] expected, Puzzle puzzle) {
+    assertEquals(expected.length, puzzle.getHeight());
+    assertEquals(expected[0].length, puzzle.getWidth());
+    for (int r = 0; r < expected.length; r++) {
+      for (int c = 0; c < expected[0].length; c++) {
+        int value = expected[r][c];
+        if (value <= 4) {
+          assertEquals(value, puzzle.getClue(r, c));
+        } else {
+          assertEquals(value == 5 ? CellType.WALL : CellType.CORRIDOR, puzzle.getCellType(r, c));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void parsesGameIds() {
+    assertBoard(new int[][] {{6, 1, 6}, {5, 6, 6}}, PuzzleImporter.parse("3x2:a1aBb"));
+    // Anything after the height, such as the difficulty, is ignored
+    assertBoard(new int[][] {{6, 6}, {6, 0}}, PuzzleImporter.parse("2x2b20s2d0:c0"));
+  }
+
+  @Test
+  public void parsesGridBlocks() {
+    assertBoard(new int[][] {{6, 1, 6}, {5, 6, 6}}, PuzzleImporter.parse(".1.\n#.."));
+  }
+
+  @Test
+  public void streamsMixedRecordsInOrder() throws IOException {
+    String pack = "3x2:a1aBb\r\n.1.\r\n#..\r\n2x2:c0\n\n  ..  \n  X4  \n";
+    List<Puzzle> puzzles = new ArrayList<>();
+    long count = new PuzzleImporter(1).importTo(new StringReader(pack), puzzles::add);
+    assertEquals(4, count);
+    assertBoard(new int[][] {{6, 1, 6}, {5, 6, 6}}, puzzles.get(0));
+    assertBoard(new int[][] {{6, 1, 6}, {5, 6, 6}}, puzzles.get(1));
+    assertBoard(new int[][] {{6, 6}, {6, 0}}, puzzles.get(2));
+    assertBoard(new int[][] {{6, 6}, {5, 4}}, puzzles.get(3));
+  }
+
+  @Test
+  public void readsChannelsIntoLibraries() throws IOException {
+    StringBuilder pack = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      pack.append("3x2:a1aBb\n");
+    }
+    PuzzleLibrary library = new PuzzleLibraryImpl();
+    long count =
+        new PuzzleImporter(64)
+            .importTo(
+                Channels.newChannel(
+                    new ByteArrayInputStream(pack.toString().getBytes(StandardCharsets.UTF_8))),
+                library::addPuzzle);
+    assertEquals(1000, count);
+    assertEquals(1000, library.size());
+  }
+
+  @Test
+  public void reportsTheLineOfAMalformedRecord() {
+    try {
+      new PuzzleImporter().importTo(new StringReader("3x2:a1aBb\n\n..\n.?\n"), p -> {});
+      fail();
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("line 3"));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsGameIdsOfTheWrongLength() {
+    PuzzleImporter.parse("3x2:a1aB");
+  }
+
+  @Test
+  public void rejectsOversizedGameIdsBeforeAllocating() {
+    // Past the size limit, and within it but with far too few characters to describe the board
+    String[][] cases = {{"65535x65535:z", "too large"}, {"4000x4000:zz", "too few cells"}};
+    for (String[] c : cases) {
+      try {
+        PuzzleImporter.parse(c[0]);
+        fail();
+      } catch (IllegalArgumentException e) {
+        assertTrue(e.getMessage().contains(c[1]));
+      }
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.comp301.a09akari.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.comp301.a09akari.SamplePuzzles;
+import java.io.IOException;
+import org.junit.Test;
+
+/** Unit tests for SatSolver and CnfEncoding. */
+public class SatSolverTest {
+  private final Solver solver = new SatSolver();
+
+  @Test
+  public void solvesEverySamplePuzzle() {
+    int[][][] boards = {
+      SamplePuzzles.PUZZLE_01,
+      SamplePuzzles.PUZZLE_02,
+      SamplePuzzles.PUZZLE_03,
+      SamplePuzzles.PUZZLE_04,
+      SamplePuzzles.PUZZLE_05
+    };
+    for (int[][] board : boards) {
+      Puzzle puzzle = new PuzzleImpl(board);
+      Solution solution = solver.solve(puzzle);
+      assertNotNull(solution);
+      assertTrue(BacktrackingSolverTest.solves(puzzle, solution));
+    }
+  }
+
+  @Test
+  public void returnsNullWhenThereIsNoSolution() {
+    assertNull(solver.solve(new PuzzleImpl(new int[][] {{6, 1}, {1, 6}})));
+  }
+
+  @Test
+  public void countsTheSameSolutionsAsBacktracking() {
+    Solver backtracking = new BacktrackingSolver();
+    int[][][] boards = {
+      {{6, 6, 6}}, {{6, 6, 6}, {6, 5, 6}, {6, 6, 6}}, SamplePuzzles.PUZZLE_02, {{6, 1}, {1, 6}}
+    };
+    for (int[][] board : boards) {
+      Puzzle puzzle = new PuzzleImpl(board);
+      assertEquals(backtracking.countSolutions(puzzle, 10), solver.countSolutions(puzzle, 10));
+    }
+  }
+
+  @Test
+  public void writesDimacsHeader() throws IOException {
+    CnfEncoding encoding = CnfEncoding.of(new PuzzleImpl(new int[][] {{6, 6, 6}}));
+    StringBuilder out = new StringBuilder();
+    encoding.writeDimacs(out);
+    assertTrue(out.toString().startsWith("p cnf 3 " + encoding.getClauseCount() + "\n"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNonPositiveLimit() {
+    solver.countSolutions(new PuzzleImpl(SamplePuzzles.PUZZLE_01), 0);
+  }
+}
@@ -0,0 +1,329 @@
+package com.comp301.a09akari.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.comp301.a09akari.SamplePuzzles;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Unit tests for SessionJournal and journaled SessionStores. */
+public class SessionJournalTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private PuzzleLibrary library;
+  private Path directory;
+
+  @Before
+  public void setUp() {
+    library = new PuzzleLibraryImpl();
+    library.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_01));
+    library.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_02));
+    directory = folder.getRoot().toPath().resolve("journal");
+  }
+
+  @Test
+  public void changesSurviveReopening() throws IOException {
+    try (SessionJournal journal = new SessionJournal(directory);
+        SessionStore store = newStore(journal)) {
+      play(store);
+    }
+    try (SessionJournal journal = new SessionJournal(directory);
+        SessionStore store = newStore(journal)) {
+      assertPlayed(store);
+    }
+  }
+
+  @Test
+  public void checkpointFoldsTheLogsIntoOneSnapshot() throws IOException {
+    try (SessionJournal journal = new SessionJournal(directory);
+        SessionStore store = newStore(journal)) {
+      play(store);
+      journal.checkpoint();
+      assertEquals(List.of("journal-1.log", "snapshot-1.dat"), files());
+      store.open(1).addLamp(6, 6);
+      journal.checkpoint();
+      store.open(1).removeLamp(6, 6);
+      assertEquals(List.of("journal-2.log", "snapshot-2.dat"), files());
+    }
+    try (SessionJournal journal = new SessionJournal(directory);
+        SessionStore store = newStore(journal)) {
+      assertPlayed(store);
+    }
+  }
+
+  @Test
+  public void recoveryDropsAFrameTornByACrash() throws IOException {
+    try (SessionJournal journal = new SessionJournal(directory);
+        SessionStore store = newStore(journal)) {
+      play(store);
+    }
+    Path log = directory.resolve("journal-0.log");
+    long size = Files.size(log);
+    // The start of a frame promising two entries, cut off after the first
+    byte[] torn = new byte[8 + 16];
+    torn[3] = 2;
+    Files.write(log, torn, StandardOpenOption.APPEND);
+
+    try (SessionJournal journal = new SessionJournal(directory);
+        SessionStore store = newStore(journal)) {
+      assertEquals(size, Files.size(log));
+      assertPlayed(store);
+    }
+  }
+
+  @Test
+  public void concurrentPlayersKeepTheirOwnChanges() throws Exception {
+    int players = 4;
+    ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    try (SessionJournal journal = new SessionJournal(directory);
+        SessionStore store = newStore(journal)) {
+      List<Thread> threads = new ArrayList<>();
+      for (int p = 0; p < players; p++) {
+        long player = p;
+        threads.add(
+            new Thread(
+                () -> {
+                  try {
+                    Model model = store.open(player);
+                    for (int i = 0; i < 200; i++) {
+                      int col = i % 6;
+                      if (model.isLamp(4, col)) {
+                        model.removeLamp(4, col);
+                      } else {
+                        model.addLamp(4, col);
+                      }
+                    }
+                    // 200 toggles over 6 cells leave a lamp on the last 4 of them
+                    model.addLamp(0, 0);
+                  } catch (Throwable e) {
+                    failures.add(e);
+                  }
+                }));
+      }
+      for (Thread thread : threads) {
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    }
+    assertTrue(failures.toString(), failures.isEmpty());
+
+    try (SessionJournal journal = new SessionJournal(directory);
+        SessionStore store = newStore(journal)) {
+      assertEquals(players, store.getSessionCount());
+      for (long player = 0; player < players; player++) {
+        Model model = store.open(player);
+        for (int col = 0; col < 6; col++) {
+          assertEquals(col >= 2, model.isLamp(4, col));
+        }
+        assertTrue(model.isLamp(0, 0));
+      }
+    }
+  }
+
+  @Test
+  public void entriesAppendedBeforeASyncShareOneFrame() throws IOException {
+    try (SessionJournal journal = new SessionJournal(directory)) {
+      for (long player = 0; player < 3; player++) {
+        int[] entry = {0, SessionJournal.entry(SessionJournal.LAMP_ADDED, 11)};
+        journal.append(player, entry, entry.length);
+      }
+      journal.sync();
+      journal.sync();
+    }
+    assertEquals(List.of(3), frames(directory.resolve("journal-0.log")));
+  }
+
+  @Test
+  public void switchingPuzzlesLogsOnlyTheSwitch() throws IOException {
+    Path log = directory.resolve("journal-0.log");
+    try (SessionJournal journal = new SessionJournal(directory);
+        SessionStore store = newStore(journal)) {
+      Model model = store.open(1);
+      model.addLamp(1, 4);
+      model.addLamp(4, 4);
+      int frames = frames(log).size();
+      model.setActivePuzzleIndex(1);
+      model.setActivePuzzleIndex(0);
+      // A batch that switches puzzles logs the lamps it changed along with the switch
+      model.beginBatch();
+      model.removeLamp(4, 4);
+      model.setActivePuzzleIndex(1);
+      model.commitBatch();
+
+      List<Integer> added = frames(log).subList(frames, frames(log).size());
+      assertEquals(List.of(1, 1, 2), added);
+    }
+    try (SessionJournal journal = new SessionJournal(directory);
+        SessionStore store = newStore(journal)) {
+      Model model = store.open(1);
+      model.setActivePuzzleIndex(0);
+      assertTrue(model.isLamp(1, 4));
+      assertFalse(model.isLamp(4, 4));
+    }
+  }
+
+  @Test
+  public void changesAfterRemovalAreNotJournaled() throws IOException {
+    try (SessionJournal journal = new SessionJournal(directory);
+        SessionStore store = newStore(journal)) {
+      Model model = store.open(1);
+      model.addLamp(1, 4);
+      store.remove(1);
+      model.addLamp(4, 4);
+    }
+    try (SessionJournal journal = new SessionJournal(directory);
+        SessionStore store = newStore(journal)) {
+      assertEquals(0, store.getSessionCount());
+    }
+  }
+
+  /**
+   * Holds a removal just before it is logged while the same player opens a session again. The new
+   * session's changes must be logged after the removal, or recovery would throw them away with it.
+   */
+  @Test
+  public void sessionsOpenedDuringARemovalAreLoggedAfterIt() throws Exception {
+    int removal = SessionJournal.entry(SessionJournal.SESSION_REMOVED, 0);
+    CountDownLatch removing = new CountDownLatch(1);
+    CountDownLatch resume = new CountDownLatch(1);
+    ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+    try (SessionJournal journal =
+            new SessionJournal(directory) {
+              @Override
+              long append(long playerId, int[] entries, int length) {
+                if (entries[1] == removal) {
+                  removing.countDown();
+                  try {
+                    resume.await();
+                  } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                  }
+                }
+                return super.append(playerId, entries, length);
+              }
+            };
+        SessionStore store = newStore(journal)) {
+      store.open(1).addLamp(1, 4);
+      Thread remover =
+          new Thread(
+              () -> {
+                try {
+                  store.remove(1);
+                } catch (Throwable e) {
+                  failures.add(e);
+                }
+              });
+      Thread opener =
+          new Thread(
+              () -> {
+                try {
+                  store.open(1).addLamp(4, 4);
+                } catch (Throwable e) {
+                  failures.add(e);
+                }
+              });
+      remover.start();
+      removing.await();
+      opener.start();
+      // Until the removal is logged, the open has to wait for it
+      while (opener.isAlive() && opener.getState() != Thread.State.BLOCKED) {
+        Thread.yield();
+      }
+      resume.countDown();
+      remover.join();
+      opener.join();
+      assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    try (SessionJournal journal = new SessionJournal(directory);
+        SessionStore store = newStore(journal)) {
+      assertEquals(1, store.getSessionCount());
+      Model model = store.open(1);
+      assertFalse(model.isLamp(1, 4));
+      assertTrue(model.isLamp(4, 4));
+    }
+  }
+
+  private SessionStore newStore(SessionJournal journal) throws IOException {
+    return new SessionStore(library, folder.getRoot().toPath().resolve("evicted"), journal);
+  }
+
+  /** Makes changes of every kind that is journaled */
+  private static void play(SessionStore store) throws IOException {
+    Model model = store.open(1);
+    model.addLamp(1, 4);
+    model.addLamp(4, 4);
+    model.removeLamp(4, 4);
+    LampSnapshot oneLamp = model.getLampSnapshot();
+    model.addLamp(2, 1);
+    model.restoreLampSnapshot(oneLamp);
+    model.setActivePuzzleIndex(1);
+    model.addLamp(0, 1);
+    model.resetPuzzle();
+    model.addLamp(1, 0);
+    store.release(1);
+
+    store.open(2).addLamp(2, 1);
+    store.open(3).addLamp(2, 1);
+    store.remove(3);
+
+    // A batch that switches puzzles reports no lamp flips
+    Model other = store.open(2);
+    other.beginBatch();
+    other.addLamp(6, 6);
+    other.setActivePuzzleIndex(1);
+    other.commitBatch();
+  }
+
+  private static void assertPlayed(SessionStore store) throws IOException {
+    assertEquals(2, store.getSessionCount());
+    Model model = store.open(1);
+    assertEquals(1, model.getActivePuzzleIndex());
+    assertTrue(model.isLamp(1, 0));
+    assertFalse(model.isLamp(0, 1));
+    model.setActivePuzzleIndex(0);
+    assertTrue(model.isLamp(1, 4));
+    assertEquals(1, model.getLampSnapshot().getLampCount());
+
+    Model other = store.open(2);
+    assertEquals(1, other.getActivePuzzleIndex());
+    other.setActivePuzzleIndex(0);
+    assertTrue(other.isLamp(2, 1));
+    assertTrue(other.isLamp(6, 6));
+  }
+
+  /** Returns the number of entries in each frame of the log */
+  private static List<Integer> frames(Path log) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(log));
+    List<Integer> counts = new ArrayList<>();
+    while (buffer.hasRemaining()) {
+      int count = buffer.getInt();
+      counts.add(count);
+      buffer.position(buffer.position() + 4 + 16 * count);
+    }
+    return counts;
+  }
+
+  private List<String> files() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package com.comp301.a09akari.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.comp301.a09akari.SamplePuzzles;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Unit tests for SessionStore and SessionRecord. */
+public class SessionStoreTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private PuzzleLibrary library;
+
+  @Before
+  public void setUp() {
+    library = new PuzzleLibraryImpl();
+    library.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_01));
+    library.addPuzzle(new PuzzleImpl(SamplePuzzles.PUZZLE_02));
+  }
+
+  @Test
+  public void releasedAndEvictedSessionsComeBackUnchanged() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("sessions");
+    try (SessionStore store = new SessionStore(library, file)) {
+      Model model = store.open(1);
+      model.addLamp(1, 4);
+      model.addLamp(6, 6);
+      model.setActivePuzzleIndex(1);
+      model.addLamp(0, 1);
+      assertSame(model, store.open(1));
+      store.open(2).addLamp(2, 1);
+
+      store.release(1);
+      assertEquals(0, store.evictIdle(60_000)); // released just now
+      store.release(2);
+      assertEquals(2, store.evictIdle(0));
+      assertEquals(2, store.getEvictedCount());
+
+      model = store.open(1);
+      assertEquals(1, store.getEvictedCount());
+      assertEquals(1, model.getActivePuzzleIndex());
+      assertTrue(model.isLamp(0, 1));
+      model.setActivePuzzleIndex(0);
+      assertTrue(model.isLamp(1, 4));
+      assertTrue(model.isLamp(6, 6));
+      assertEquals(2, model.getLampSnapshot().getLampCount());
+      assertTrue(store.open(2).isLamp(2, 1));
+      assertEquals(0, store.open(3).getLampSnapshot().getLampCount());
+      assertEquals(3, store.getSessionCount());
+    }
+  }
+
+  @Test
+  public void evictionReusesFreedSlots() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("sessions");
+    try (SessionStore store = new SessionStore(library, file)) {
+      for (long player = 0; player < 100; player++) {
+        store.open(player).addLamp(1, 4);
+        store.release(player);
+      }
+      store.evictIdle(0);
+      long size = Files.size(file);
+      for (int round = 0; round < 5; round++) {
+        for (long player = 0; player < 100; player++) {
+          store.open(player).addLamp(4, 4 + round % 2);
+          store.release(player);
+        }
+        store.evictIdle(0);
+      }
+      assertEquals(size, Files.size(file));
+
+      assertTrue(store.remove(7));
+      assertFalse(store.remove(7));
+      assertEquals(99, store.getEvictedCount());
+      assertEquals(0, store.open(7).getLampSnapshot().getLampCount());
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void readRejectsRecordsRunningPastTheirLength() throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(16);
+    buffer.putInt(0).putInt(1).putLong(5); // a header promising 5 words with none after it
+    buffer.flip();
+    SessionRecord.read(buffer);
+  }
+}
@@ -0,0 +1,55 @@
+package com.comp301.a09akari.model;
+
+import static org.junit.Assert.assertEquals;
+
+import com.comp301.a09akari.SamplePuzzles;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/** Unit tests for UniquenessChecker and validated PuzzleLibraryImpl. */
+public class UniquenessCheckerTest {
+  private final Puzzle unique = new PuzzleImpl(SamplePuzzles.PUZZLE_02);
+  private final Puzzle ambiguous = new PuzzleImpl(new int[][] {{6, 6, 6}});
+  private final Puzzle unsolvable = new PuzzleImpl(new int[][] {{6, 1}, {1, 6}});
+
+  @Test
+  public void classifiesPuzzlesBySolutionCount() {
+    UniquenessChecker checker = new UniquenessChecker();
+    assertEquals(UniquenessChecker.Verdict.UNIQUE, checker.check(unique));
+    assertEquals(UniquenessChecker.Verdict.MULTIPLE_SOLUTIONS, checker.check(ambiguous));
+    assertEquals(UniquenessChecker.Verdict.NO_SOLUTION, checker.check(unsolvable));
+  }
+
+  @Test
+  public void batchVerdictsKeepListOrder() {
+    List<UniquenessChecker.Verdict> verdicts =
+        new UniquenessChecker(1000).checkAll(Arrays.asList(ambiguous, unique, unsolvable));
+    assertEquals(
+        Arrays.asList(
+            UniquenessChecker.Verdict.MULTIPLE_SOLUTIONS,
+            UniquenessChecker.Verdict.UNIQUE,
+            UniquenessChecker.Verdict.NO_SOLUTION),
+        verdicts);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void validatedLibraryRejectsAmbiguousPuzzles() {
+    new PuzzleLibraryImpl(new UniquenessChecker()).addPuzzle(ambiguous);
+  }
+
+  @Test
+  public void validatedLibrarySkipsInvalidPuzzlesInBatches() {
+    PuzzleLibraryImpl library = new PuzzleLibraryImpl(new UniquenessChecker());
+    assertEquals(1, library.addPuzzles(Arrays.asList(ambiguous, unique, unsolvable)));
+    assertEquals(1, library.size());
+    assertEquals(unique, library.getPuzzle(0));
+  }
+
+  @Test
+  public void batchesMayBeImmutableLists() {
+    // List.of() throws on contains(null), so nulls must be looked for some other way
+    PuzzleLibraryImpl library = new PuzzleLibraryImpl();
+    assertEquals(2, library.addPuzzles(List.of(unique, ambiguous)));
+  }
+}
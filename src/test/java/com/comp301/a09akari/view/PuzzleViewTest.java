@@ -0,0 +1,62 @@
+package com.comp301.a09akari.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.comp301.a09akari.model.Model;
+import com.comp301.a09akari.model.ModelChange;
+import com.comp301.a09akari.model.ModelImpl;
+import com.comp301.a09akari.model.ModelObserver;
+import com.comp301.a09akari.model.PuzzleImpl;
+import com.comp301.a09akari.model.PuzzleLibrary;
+import com.comp301.a09akari.model.PuzzleLibraryImpl;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.Rectangle;
+import org.junit.Test;
+
+/** Unit tests for PuzzleView. */
+public class PuzzleViewTest {
+  @Test
+  public void refreshRedrawsLampsMovedInABatch() {
+    PuzzleLibrary library = new PuzzleLibraryImpl();
+    library.addPuzzle(new PuzzleImpl(new int[][] {{6, 6, 6, 6}}));
+    Model model = new ModelImpl(library);
+    PuzzleView view = new PuzzleView(model, null);
+    model.addLamp(0, 2);
+    GridPane grid = (GridPane) view.render();
+    assertEquals(Color.ORANGE, fill(grid, 2));
+
+    ModelChange[] batch = new ModelChange[1];
+    model.addObserver(
+        new ModelObserver() {
+          @Override
+          public void update(Model model) {}
+
+          @Override
+          public void update(Model model, ModelChange change) {
+            batch[0] = change;
+          }
+        });
+    model.beginBatch();
+    model.removeLamp(0, 2);
+    model.addLamp(0, 0);
+    model.commitBatch();
+    // The corridor stays lit throughout, so only the two lamps flipped
+    assertEquals(ModelChange.Type.BATCH, batch[0].getType());
+    assertEquals(-1, batch[0].getRow());
+    assertEquals(0, batch[0].getLitFlips().length);
+    assertEquals(2, batch[0].getLampFlips().length);
+
+    assertSame(grid, view.refresh(batch[0]));
+    assertEquals(Color.ORANGE, fill(grid, 0));
+    assertEquals(Color.YELLOW, fill(grid, 2));
+  }
+
+  private static Paint fill(GridPane grid, int col) {
+    StackPane cell = (StackPane) grid.getChildren().get(col);
+    return ((Rectangle) cell.getChildren().get(0)).getFill();
+  }
+}